@@ -0,0 +1,220 @@
+package com.futurepress.visiblescroll;
+
+import java.util.Locale;
+import java.util.Random;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.facebook.react.bridge.CatalystInstance;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.queue.ReactQueueConfiguration;
+import com.facebook.react.uimanager.DisplayMetricsHolder;
+import com.facebook.react.uimanager.UIManagerModule;
+import com.facebook.react.uimanager.events.EventDispatcher;
+import com.facebook.react.views.view.ReactViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Times the layout passes of {@link FPVisibleScrollView} and {@link FPHorizontalVisibleScrollView}
+ * while content changes before the viewport, and measures how far the visible content moved.
+ *
+ * <p>Each pass changes one child, lays every child out again as the UI manager would and runs the
+ * pre-draw pass that corrects the anchor. The reported time covers all of it, for 100, 1,000 and
+ * 10,000 children. The anchor error is the largest distance the first visible child moved from
+ * its place in the viewport, and the largest error the view itself reported. Run with
+ * {@code ./gradlew :benchmark:testDebugUnitTest}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class AnchorCorrectionBenchmark {
+
+  private static final int[] CHILD_COUNTS = {100, 1000, 10000};
+  private static final int WARMUP_PASSES = 5;
+  private static final int MEASURED_PASSES = 20;
+  private static final int VIEWPORT_SIZE = 1000;
+  private static final int CROSS_SIZE = 500;
+  private static final int MIN_CHILD_SIZE = 50;
+  private static final int MAX_CHILD_SIZE = 150;
+
+  private enum Scenario {
+    PREPEND,
+    APPEND,
+    RESIZE_ABOVE,
+    REMOVE_ABOVE,
+  }
+
+  private ReactApplicationContext mContext;
+  private Random mRandom;
+
+  @Before
+  public void setUp() {
+    DisplayMetricsHolder.setWindowDisplayMetrics(
+        RuntimeEnvironment.application.getResources().getDisplayMetrics());
+    mContext = new ReactApplicationContext(RuntimeEnvironment.application);
+    CatalystInstance catalystInstance = mock(CatalystInstance.class);
+    when(catalystInstance.getReactQueueConfiguration())
+        .thenReturn(mock(ReactQueueConfiguration.class));
+    UIManagerModule uiManager = mock(UIManagerModule.class);
+    when(uiManager.getEventDispatcher()).thenReturn(mock(EventDispatcher.class));
+    when(catalystInstance.getNativeModule(UIManagerModule.class)).thenReturn(uiManager);
+    mContext.initializeWithInstance(catalystInstance);
+    mRandom = new Random(1);
+  }
+
+  @Test
+  public void benchmarkAnchorCorrection() {
+    System.out.println(String.format(
+        Locale.US,
+        "%-14s %-10s %8s %10s %10s %10s",
+        "scenario",
+        "axis",
+        "children",
+        "us/pass",
+        "drift px",
+        "error px"));
+    for (ScrollAxis axis : new ScrollAxis[] {ScrollAxis.VERTICAL, ScrollAxis.HORIZONTAL}) {
+      for (Scenario scenario : Scenario.values()) {
+        for (int childCount : CHILD_COUNTS) {
+          run(axis, scenario, childCount);
+        }
+      }
+    }
+  }
+
+  private void run(ScrollAxis axis, Scenario scenario, int childCount) {
+    ViewGroup scrollView = createScrollView(axis);
+    ReactViewGroup content = new ReactViewGroup(mContext);
+    for (int i = 0; i < childCount; i++) {
+      content.addView(new View(mContext), i);
+    }
+    int[] sizes = new int[childCount * 2];
+    for (int i = 0; i < childCount; i++) {
+      sizes[i] = randomChildSize();
+    }
+    int length = layout(axis, content, sizes, childCount);
+    scrollView.addView(content);
+    scrollView.getViewTreeObserver().dispatchOnPreDraw();
+    axis.scrollTo(scrollView, (length - VIEWPORT_SIZE) / 2);
+
+    int count = childCount;
+    long totalNanos = 0;
+    int maxDrift = 0;
+    int maxError = 0;
+    for (int pass = 0; pass < WARMUP_PASSES + MEASURED_PASSES; pass++) {
+      int scroll = axis.getScroll(scrollView);
+      View anchor = content.getChildAt(firstEndingAfter(axis, content, scroll));
+      int offset = axis.getStart(anchor) - scroll;
+      // Above the viewport, but never the anchor itself.
+      int above = mRandom.nextInt(Math.max(content.indexOfChild(anchor), 1));
+
+      long startNanos = System.nanoTime();
+      switch (scenario) {
+        case PREPEND:
+          System.arraycopy(sizes, 0, sizes, 1, count);
+          sizes[0] = randomChildSize();
+          content.addView(new View(mContext), 0);
+          count++;
+          break;
+        case APPEND:
+          sizes[count] = randomChildSize();
+          content.addView(new View(mContext), count);
+          count++;
+          break;
+        case RESIZE_ABOVE:
+          sizes[above] = randomChildSize();
+          break;
+        case REMOVE_ABOVE:
+          System.arraycopy(sizes, above + 1, sizes, above, count - above - 1);
+          content.removeViewAt(above);
+          count--;
+          break;
+      }
+      layout(axis, content, sizes, count);
+      scrollView.getViewTreeObserver().dispatchOnPreDraw();
+      long elapsedNanos = System.nanoTime() - startNanos;
+
+      if (pass >= WARMUP_PASSES) {
+        totalNanos += elapsedNanos;
+        int drift = axis.getStart(anchor) - axis.getScroll(scrollView) - offset;
+        maxDrift = Math.max(maxDrift, Math.abs(drift));
+        maxError = Math.max(maxError, Math.abs(getLastAnchorError(scrollView)));
+      }
+    }
+
+    System.out.println(String.format(
+        Locale.US,
+        "%-14s %-10s %8d %10.1f %10d %10d",
+        scenario.name().toLowerCase(Locale.US),
+        axis == ScrollAxis.VERTICAL ? "vertical" : "horizontal",
+        childCount,
+        totalNanos / 1e3 / MEASURED_PASSES,
+        maxDrift,
+        maxError));
+  }
+
+  private ViewGroup createScrollView(ScrollAxis axis) {
+    if (axis == ScrollAxis.VERTICAL) {
+      FPVisibleScrollView scrollView = new FPVisibleScrollView(mContext);
+      scrollView.layout(0, 0, CROSS_SIZE, VIEWPORT_SIZE);
+      scrollView.onAttachedToWindow();
+      return scrollView;
+    }
+    FPHorizontalVisibleScrollView scrollView = new FPHorizontalVisibleScrollView(mContext);
+    scrollView.layout(0, 0, VIEWPORT_SIZE, CROSS_SIZE);
+    scrollView.onAttachedToWindow();
+    return scrollView;
+  }
+
+  private static int getLastAnchorError(ViewGroup scrollView) {
+    return scrollView instanceof FPVisibleScrollView ?
+        ((FPVisibleScrollView) scrollView).getLastAnchorError() :
+        ((FPHorizontalVisibleScrollView) scrollView).getLastAnchorError();
+  }
+
+  private int randomChildSize() {
+    return MIN_CHILD_SIZE + mRandom.nextInt(MAX_CHILD_SIZE - MIN_CHILD_SIZE + 1);
+  }
+
+  /**
+   * Lays the children out end to end, then the content around them, as the UI manager would.
+   *
+   * @return the length of the content
+   */
+  private static int layout(ScrollAxis axis, ViewGroup content, int[] sizes, int count) {
+    int offset = 0;
+    for (int i = 0; i < count; i++) {
+      int end = offset + sizes[i];
+      layout(axis, content.getChildAt(i), offset, end);
+      offset = end;
+    }
+    layout(axis, content, 0, offset);
+    return offset;
+  }
+
+  private static void layout(ScrollAxis axis, View view, int start, int end) {
+    view.layout(
+        axis.along(start, 0),
+        axis.along(0, start),
+        axis.along(end, CROSS_SIZE),
+        axis.along(CROSS_SIZE, end));
+  }
+
+  private static int firstEndingAfter(ScrollAxis axis, ViewGroup content, int offset) {
+    for (int i = 0; i < content.getChildCount(); i++) {
+      if (axis.getEnd(content.getChildAt(i)) > offset) {
+        return i;
+      }
+    }
+    return content.getChildCount() - 1;
+  }
+}
@@ -0,0 +1,255 @@
+package com.futurepress.visiblescroll;
+
+import javax.annotation.Nullable;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.facebook.react.views.view.ReactViewGroup;
+import com.facebook.react.views.view.ReactViewManager;
+
+/**
+ * Start and end offsets of the content view's children along the scroll axis, kept in parallel
+ * primitive arrays so that visibility queries are binary searches instead of walks over every
+ * child.
+ *
+ * <p>Children of the content view are laid out in order along the axis, so both arrays are
+ * sorted. Child layout changes update their entry in place. Hierarchy changes are applied in place
+ * when the child's index is known; anything else marks the index dirty and it is rebuilt, once, on
+ * the next query.
+ */
+final class ChildEdgeIndex {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  // ReactViewGroup only exposes its clipped children to its own package; its view manager reads
+  // them through public methods, and keeps no state of its own.
+  private static final ReactViewManager VIEW_MANAGER = new ReactViewManager();
+
+  private final ScrollAxis mAxis;
+
+  private @Nullable ViewGroup mContentView;
+  private View[] mViews = new View[INITIAL_CAPACITY];
+  private int[] mStarts = new int[INITIAL_CAPACITY];
+  private int[] mEnds = new int[INITIAL_CAPACITY];
+  private int mSize = 0;
+  private boolean mDirty = true;
+  // Children are usually laid out in order, so the slot after the last update is the best guess.
+  private int mLastUpdatedSlot = -1;
+  // Bumped whenever the set of indexed children changes.
+  private int mGeneration = 0;
+
+  ChildEdgeIndex(ScrollAxis axis) {
+    mAxis = axis;
+  }
+
+  public void setContentView(@Nullable ViewGroup contentView) {
+    mContentView = contentView;
+    invalidate();
+  }
+
+  public void invalidate() {
+    mDirty = true;
+  }
+
+  public int getGeneration() {
+    return mGeneration;
+  }
+
+  public void onChildAdded(View child) {
+    if (mDirty || mContentView == null || isClippingSubviews()) {
+      // With subview clipping the attached children are a subset of the logical ones.
+      invalidate();
+      return;
+    }
+    int index = mContentView.indexOfChild(child);
+    if (index < 0 || index > mSize) {
+      invalidate();
+      return;
+    }
+    ensureCapacity(mSize + 1);
+    System.arraycopy(mViews, index, mViews, index + 1, mSize - index);
+    System.arraycopy(mStarts, index, mStarts, index + 1, mSize - index);
+    System.arraycopy(mEnds, index, mEnds, index + 1, mSize - index);
+    mViews[index] = child;
+    mStarts[index] = mAxis.getStart(child);
+    mEnds[index] = mAxis.getEnd(child);
+    mSize++;
+    mGeneration++;
+  }
+
+  public void onChildRemoved(View child) {
+    if (mDirty || isClippingSubviews()) {
+      invalidate();
+      return;
+    }
+    int slot = findSlot(child);
+    if (slot == -1) {
+      invalidate();
+      return;
+    }
+    System.arraycopy(mViews, slot + 1, mViews, slot, mSize - slot - 1);
+    System.arraycopy(mStarts, slot + 1, mStarts, slot, mSize - slot - 1);
+    System.arraycopy(mEnds, slot + 1, mEnds, slot, mSize - slot - 1);
+    mSize--;
+    mViews[mSize] = null;
+    mGeneration++;
+  }
+
+  /**
+   * With subview clipping, children inserted or removed while clipped are never attached, so no
+   * hierarchy callback reports them; the content view changing size is the only signal.
+   */
+  public void onContentLayout() {
+    if (isClippingSubviews()) {
+      invalidate();
+    }
+  }
+
+  public void onChildLayout(View child, int start, int end) {
+    if (mDirty) {
+      return;
+    }
+    int slot = findSlot(child);
+    if (slot == -1) {
+      invalidate();
+      return;
+    }
+    mStarts[slot] = start;
+    mEnds[slot] = end;
+    mLastUpdatedSlot = slot;
+  }
+
+  public int size() {
+    ensureBuilt();
+    return mSize;
+  }
+
+  public View getView(int index) {
+    ensureBuilt();
+    return mViews[index];
+  }
+
+  public int getStart(int index) {
+    ensureBuilt();
+    return mStarts[index];
+  }
+
+  public int getEnd(int index) {
+    ensureBuilt();
+    return mEnds[index];
+  }
+
+  /**
+   * @return the first index at or after {@code fromIndex} whose child ends after {@code offset},
+   *     or -1 if there is none.
+   */
+  public int firstEndingAfter(int offset, int fromIndex) {
+    ensureBuilt();
+    int low = Math.max(fromIndex, 0);
+    int high = mSize - 1;
+    int result = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (mEnds[mid] > offset) {
+        result = mid;
+        high = mid - 1;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the last index whose child starts before {@code offset}, or -1 if there is none.
+   */
+  public int lastStartingBefore(int offset) {
+    ensureBuilt();
+    int low = 0;
+    int high = mSize - 1;
+    int result = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (mStarts[mid] < offset) {
+        result = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return result;
+  }
+
+  private void ensureBuilt() {
+    if (!mDirty) {
+      return;
+    }
+    mDirty = false;
+    mLastUpdatedSlot = -1;
+    mGeneration++;
+    int count = getContentChildCount();
+    ensureCapacity(count);
+    for (int i = 0; i < count; i++) {
+      View child = getContentChildAt(i);
+      mViews[i] = child;
+      mStarts[i] = mAxis.getStart(child);
+      mEnds[i] = mAxis.getEnd(child);
+    }
+    for (int i = count; i < mSize; i++) {
+      mViews[i] = null;
+    }
+    mSize = count;
+  }
+
+  private int findSlot(View child) {
+    int hint = mLastUpdatedSlot + 1;
+    if (hint < mSize && mViews[hint] == child) {
+      return hint;
+    }
+    for (int i = 0; i < mSize; i++) {
+      if (mViews[i] == child) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity <= mViews.length) {
+      return;
+    }
+    int newCapacity = Math.max(capacity, mViews.length * 2);
+    View[] views = new View[newCapacity];
+    int[] starts = new int[newCapacity];
+    int[] ends = new int[newCapacity];
+    System.arraycopy(mViews, 0, views, 0, mSize);
+    System.arraycopy(mStarts, 0, starts, 0, mSize);
+    System.arraycopy(mEnds, 0, ends, 0, mSize);
+    mViews = views;
+    mStarts = starts;
+    mEnds = ends;
+  }
+
+  private boolean isClippingSubviews() {
+    return mContentView instanceof ReactViewGroup &&
+        ((ReactViewGroup) mContentView).getRemoveClippedSubviews();
+  }
+
+  private int getContentChildCount() {
+    if (mContentView == null) {
+      return 0;
+    }
+    if (mContentView instanceof ReactViewGroup) {
+      return VIEW_MANAGER.getChildCount((ReactViewGroup) mContentView);
+    }
+    return mContentView.getChildCount();
+  }
+
+  private View getContentChildAt(int index) {
+    if (mContentView instanceof ReactViewGroup) {
+      return VIEW_MANAGER.getChildAt((ReactViewGroup) mContentView, index);
+    }
+    return mContentView.getChildAt(index);
+  }
+}
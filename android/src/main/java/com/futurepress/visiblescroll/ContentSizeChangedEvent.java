@@ -0,0 +1,63 @@
+package com.futurepress.visiblescroll;
+
+import android.support.v4.util.Pools;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.uimanager.PixelUtil;
+import com.facebook.react.uimanager.events.Event;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
+
+/**
+ * Sent at most once per frame when the content view changed size, after the anchor correction for
+ * that frame has been applied, instead of once per intermediate layout. Only the latest size
+ * matters, so queued events coalesce.
+ */
+public class ContentSizeChangedEvent extends Event<ContentSizeChangedEvent> {
+
+  private static final Pools.SynchronizedPool<ContentSizeChangedEvent> EVENTS_POOL =
+      new Pools.SynchronizedPool<>(3);
+
+  private int mWidth;
+  private int mHeight;
+
+  public static ContentSizeChangedEvent obtain(int viewTag, int width, int height) {
+    ContentSizeChangedEvent event = EVENTS_POOL.acquire();
+    if (event == null) {
+      event = new ContentSizeChangedEvent();
+    }
+    event.init(viewTag, width, height);
+    return event;
+  }
+
+  @Override
+  public void onDispose() {
+    EVENTS_POOL.release(this);
+  }
+
+  private ContentSizeChangedEvent() {
+  }
+
+  private void init(int viewTag, int width, int height) {
+    super.init(viewTag);
+    mWidth = width;
+    mHeight = height;
+  }
+
+  @Override
+  public String getEventName() {
+    return VisibleScrollEventType.CONTENT_SIZE_CHANGED.getJSEventName();
+  }
+
+  @Override
+  public void dispatch(RCTEventEmitter rctEventEmitter) {
+    rctEventEmitter.receiveEvent(getViewTag(), getEventName(), serializeEventData());
+  }
+
+  private WritableMap serializeEventData() {
+    WritableMap event = Arguments.createMap();
+    event.putDouble("width", PixelUtil.toDIPFromPixel(mWidth));
+    event.putDouble("height", PixelUtil.toDIPFromPixel(mHeight));
+    return event;
+  }
+}
@@ -0,0 +1,82 @@
+package com.futurepress.visiblescroll;
+
+import android.support.v4.util.Pools;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.uimanager.PixelUtil;
+import com.facebook.react.uimanager.events.Event;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
+
+/**
+ * Sent when the content reaches further than the trim distance past the viewport, naming the
+ * range of content children at that edge that are entirely beyond it and can be unmounted.
+ */
+public class DropRequestEvent extends Event<DropRequestEvent> {
+
+  public static final int EDGE_START = 0;
+  public static final int EDGE_END = 1;
+
+  private static final Pools.SynchronizedPool<DropRequestEvent> EVENTS_POOL =
+      new Pools.SynchronizedPool<>(3);
+
+  private int mEdge;
+  private int mFirstIndex;
+  private int mLastIndex;
+  private int mSize;
+
+  public static DropRequestEvent obtain(
+      int viewTag,
+      int edge,
+      int firstIndex,
+      int lastIndex,
+      int size) {
+    DropRequestEvent event = EVENTS_POOL.acquire();
+    if (event == null) {
+      event = new DropRequestEvent();
+    }
+    event.init(viewTag, edge, firstIndex, lastIndex, size);
+    return event;
+  }
+
+  @Override
+  public void onDispose() {
+    EVENTS_POOL.release(this);
+  }
+
+  private DropRequestEvent() {
+  }
+
+  private void init(int viewTag, int edge, int firstIndex, int lastIndex, int size) {
+    super.init(viewTag);
+    mEdge = edge;
+    mFirstIndex = firstIndex;
+    mLastIndex = lastIndex;
+    mSize = size;
+  }
+
+  @Override
+  public String getEventName() {
+    return VisibleScrollEventType.DROP_REQUEST.getJSEventName();
+  }
+
+  @Override
+  public boolean canCoalesce() {
+    // A start and an end event can be queued in the same frame.
+    return false;
+  }
+
+  @Override
+  public void dispatch(RCTEventEmitter rctEventEmitter) {
+    rctEventEmitter.receiveEvent(getViewTag(), getEventName(), serializeEventData());
+  }
+
+  private WritableMap serializeEventData() {
+    WritableMap event = Arguments.createMap();
+    event.putString("edge", mEdge == EDGE_START ? "start" : "end");
+    event.putInt("firstIndex", mFirstIndex);
+    event.putInt("lastIndex", mLastIndex);
+    event.putDouble("size", PixelUtil.toDIPFromPixel(mSize));
+    return event;
+  }
+}
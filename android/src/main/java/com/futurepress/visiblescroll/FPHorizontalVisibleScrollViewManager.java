@@ -11,10 +11,13 @@ package com.futurepress.visiblescroll;
 
 import javax.annotation.Nullable;
 
+import java.util.Map;
+
 import android.graphics.Color;
 import android.view.View;
 
 import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.module.annotations.ReactModule;
 import com.facebook.react.uimanager.PixelUtil;
 import com.facebook.react.uimanager.Spacing;
@@ -39,7 +42,7 @@ import com.facebook.react.views.scroll.ReactScrollViewHelper;
 @ReactModule(name = FPHorizontalVisibleScrollViewManager.REACT_CLASS)
 public class FPHorizontalVisibleScrollViewManager
     extends ViewGroupManager<FPHorizontalVisibleScrollView>
-    implements ReactScrollViewCommandHelper.ScrollCommandHandler<FPHorizontalVisibleScrollView> {
+    implements VisibleScrollViewCommandHelper.VisibleScrollCommandHandler<FPHorizontalVisibleScrollView> {
 
   protected static final String REACT_CLASS = "FPAndroidHorizontalVisibleScrollView";
 
@@ -48,13 +51,21 @@ public class FPHorizontalVisibleScrollViewManager
   };
 
   private @Nullable FpsListener mFpsListener = null;
+  private @Nullable VisibleScrollMetricsRegistry mMetricsRegistry = null;
 
   public FPHorizontalVisibleScrollViewManager() {
     this(null);
   }
 
   public FPHorizontalVisibleScrollViewManager(@Nullable FpsListener fpsListener) {
+    this(fpsListener, null);
+  }
+
+  public FPHorizontalVisibleScrollViewManager(
+      @Nullable FpsListener fpsListener,
+      @Nullable VisibleScrollMetricsRegistry metricsRegistry) {
     mFpsListener = fpsListener;
+    mMetricsRegistry = metricsRegistry;
   }
 
   @Override
@@ -64,7 +75,7 @@ public class FPHorizontalVisibleScrollViewManager
 
   @Override
   public FPHorizontalVisibleScrollView createViewInstance(ThemedReactContext context) {
-    return new FPHorizontalVisibleScrollView(context, mFpsListener);
+    return new FPHorizontalVisibleScrollView(context, mFpsListener, mMetricsRegistry);
   }
 
   @ReactProp(name = "scrollEnabled", defaultBoolean = true)
@@ -83,9 +94,10 @@ public class FPHorizontalVisibleScrollViewManager
   }
 
   /**
-   * Computing momentum events is potentially expensive since we post a runnable on the UI thread
-   * to see when it is done.  We only do that if {@param sendMomentumEvents} is set to true.  This
-   * is handled automatically in js by checking if there is a listener on the momentum events.
+   * Momentum events are only sent if {@param sendMomentumEvents} is set to true.  This is handled
+   * automatically in js by checking if there is a listener on the momentum events.  The end of a
+   * fling is detected from the scroller in a frame callback that is only registered while the
+   * view is moving, so leaving them on costs little.
    *
    * @param view
    * @param sendMomentumEvents
@@ -96,8 +108,9 @@ public class FPHorizontalVisibleScrollViewManager
   }
 
   /**
-   * Tag used for logging scroll performance on this scroll view. Will force momentum events to be
-   * turned on (see setSendMomentumEvents).
+   * Tag used for logging scroll performance on this scroll view. Frame timing is reported while
+   * the view is dragged or flinging. Also collects this view's metrics under the tag, see
+   * {@link VisibleScrollMetricsModule}.
    *
    * @param view
    * @param scrollPerfTag
@@ -112,6 +125,237 @@ public class FPHorizontalVisibleScrollViewManager
     view.setPagingEnabled(pagingEnabled);
   }
 
+  /**
+   * When set, flings come to rest on the start edge of a content child, picked natively from the
+   * children's current layout where the fling would have ended. Takes precedence over
+   * pagingEnabled.
+   *
+   * @param view
+   * @param snapToChildren
+   */
+  @ReactProp(name = "snapToChildren")
+  public void setSnapToChildren(FPHorizontalVisibleScrollView view, boolean snapToChildren) {
+    view.setSnapToChildren(snapToChildren);
+  }
+
+  /**
+   * When set, the first visible child at or after {@code minIndexForVisible} is kept at the same
+   * position across content changes. If {@code autoscrollToTopThreshold} is set and the view was
+   * scrolled within that distance of the start, it scrolls back to the start after adjusting.
+   * @param view
+   * @param value
+   */
+  @ReactProp(name = "maintainVisibleContentPosition")
+  public void setMaintainVisibleContentPosition(FPHorizontalVisibleScrollView view, @Nullable ReadableMap value) {
+    if (value == null) {
+      view.setMaintainVisibleContentPosition(false, 0, -1);
+      return;
+    }
+    int minIndexForVisible = value.hasKey("minIndexForVisible") ?
+        value.getInt("minIndexForVisible") : 0;
+    int autoscrollToTopThreshold =
+        value.hasKey("autoscrollToTopThreshold") && !value.isNull("autoscrollToTopThreshold") ?
+            (int) PixelUtil.toPixelFromDIP(value.getDouble("autoscrollToTopThreshold")) : -1;
+    view.setMaintainVisibleContentPosition(true, minIndexForVisible, autoscrollToTopThreshold);
+  }
+
+  /**
+   * Computing the visible child range costs two binary searches per scroll. We only do that if
+   * {@param sendVisibleItemsEvents} is set to true, which js does when there is an
+   * onVisibleItemsChanged listener.
+   *
+   * @param view
+   * @param sendVisibleItemsEvents
+   */
+  @ReactProp(name = "sendVisibleItemsEvents")
+  public void setSendVisibleItemsEvents(FPHorizontalVisibleScrollView view, boolean sendVisibleItemsEvents) {
+    view.setSendVisibleItemsEvents(sendVisibleItemsEvents);
+  }
+
+  /**
+   * Minimum interval in ms between scroll events. Changes in between are coalesced into one
+   * trailing event with the latest offset. 0 sends an event for every scroll change.
+   *
+   * @param view
+   * @param scrollEventThrottle
+   */
+  @ReactProp(name = "scrollEventThrottle")
+  public void setScrollEventThrottle(FPHorizontalVisibleScrollView view, int scrollEventThrottle) {
+    view.setScrollEventThrottle(scrollEventThrottle);
+  }
+
+  /**
+   * Minimum distance the view has to scroll between scroll events, enforced together with
+   * scrollEventThrottle.
+   *
+   * @param view
+   * @param scrollEventThrottleDistance
+   */
+  @ReactProp(name = "scrollEventThrottleDistance")
+  public void setScrollEventThrottleDistance(FPHorizontalVisibleScrollView view, float scrollEventThrottleDistance) {
+    view.setScrollEventThrottleDistance(
+        Math.round(PixelUtil.toPixelFromDIP(scrollEventThrottleDistance)));
+  }
+
+  /**
+   * Distance past the viewport beyond which content children may be unmounted. When either edge
+   * of the content reaches further, onDropRequest fires with the range of children entirely
+   * beyond it, once per content size change. Dropping children before the viewport keeps the
+   * visible content in place.
+   *
+   * @param view
+   * @param trimDistance
+   */
+  @ReactProp(name = "trimDistance")
+  public void setTrimDistance(FPHorizontalVisibleScrollView view, float trimDistance) {
+    view.setTrimDistance(Math.round(PixelUtil.toPixelFromDIP(trimDistance)));
+  }
+
+  /**
+   * Distance from either edge of the content at which onPrefetch fires. Each edge fires once per
+   * content size change. Combined with prefetchDistanceScreens, the larger distance wins.
+   *
+   * @param view
+   * @param prefetchDistance
+   */
+  @ReactProp(name = "prefetchDistance")
+  public void setPrefetchDistance(FPHorizontalVisibleScrollView view, float prefetchDistance) {
+    view.setPrefetchDistance(Math.round(PixelUtil.toPixelFromDIP(prefetchDistance)));
+  }
+
+  /**
+   * Same as prefetchDistance, in multiples of the viewport size.
+   *
+   * @param view
+   * @param prefetchDistanceScreens
+   */
+  @ReactProp(name = "prefetchDistanceScreens")
+  public void setPrefetchDistanceScreens(FPHorizontalVisibleScrollView view, float prefetchDistanceScreens) {
+    view.setPrefetchDistanceScreens(prefetchDistanceScreens);
+  }
+
+  /**
+   * Children further than this from the viewport are released to JS, which renders placeholders
+   * of their measured size in their place. 0 turns recycling off.
+   *
+   * @param view
+   * @param recycleDistance
+   */
+  @ReactProp(name = "recycleDistance")
+  public void setRecycleDistance(FPHorizontalVisibleScrollView view, float recycleDistance) {
+    view.setRecycleDistance(Math.round(PixelUtil.toPixelFromDIP(recycleDistance)));
+  }
+
+  /**
+   * While flinging with removeClippedSubviews, children are attached this many milliseconds of
+   * travel before they scroll in, at the current fling velocity. Trades memory for fewer blank
+   * frames; the window shrinks back as the fling slows down.
+   *
+   * @param view
+   * @param flingLookaheadTime
+   */
+  @ReactProp(name = "flingLookaheadTime")
+  public void setFlingLookaheadTime(FPHorizontalVisibleScrollView view, int flingLookaheadTime) {
+    view.setFlingLookaheadTime(flingLookaheadTime);
+  }
+
+  @ReactProp(name = "flingLookaheadMaxDistance")
+  public void setFlingLookaheadMaxDistance(FPHorizontalVisibleScrollView view, float flingLookaheadMaxDistance) {
+    view.setFlingLookaheadMaxDistance(
+        Math.round(PixelUtil.toPixelFromDIP(flingLookaheadMaxDistance)));
+  }
+
+  /**
+   * Non-urgent work, such as detaching children after a fling, waits until the UI thread is idle
+   * and the view has stopped scrolling. This caps how many milliseconds of it run per idle slot.
+   *
+   * @param view
+   * @param idleWorkBudget
+   */
+  @ReactProp(name = "idleWorkBudget")
+  public void setIdleWorkBudget(FPHorizontalVisibleScrollView view, int idleWorkBudget) {
+    view.setIdleWorkBudget(idleWorkBudget);
+  }
+
+  /**
+   * Set by js when children above the viewport are rendered as estimated-size placeholders. The
+   * view then reports which children are within materializeDistance of the viewport, so they can
+   * be rendered for real before they scroll in.
+   *
+   * @param view
+   * @param sendMaterializeRangeEvents
+   */
+  @ReactProp(name = "sendMaterializeRangeEvents")
+  public void setSendMaterializeRangeEvents(FPHorizontalVisibleScrollView view, boolean sendMaterializeRangeEvents) {
+    view.setSendMaterializeRangeEvents(sendMaterializeRangeEvents);
+  }
+
+  /**
+   * Unset, the materialize distance is one viewport.
+   *
+   * @param view
+   * @param materializeDistance
+   */
+  @ReactProp(name = "materializeDistance", defaultFloat = -1)
+  public void setMaterializeDistance(FPHorizontalVisibleScrollView view, float materializeDistance) {
+    view.setMaterializeDistance(materializeDistance < 0 ?
+        -1 : Math.round(PixelUtil.toPixelFromDIP(materializeDistance)));
+  }
+
+  /**
+   * Set once by js from the initialAnchor prop: the view scrolls to {@code offset} past the start
+   * of the child at {@code index} on the first layout where that child exists.
+   *
+   * @param view
+   * @param initialAnchor
+   */
+  @ReactProp(name = "initialAnchor")
+  public void setInitialAnchor(
+      FPHorizontalVisibleScrollView view,
+      @Nullable ReadableMap initialAnchor) {
+    if (initialAnchor == null) {
+      view.setInitialAnchor(-1, 0);
+      return;
+    }
+    int offset = initialAnchor.hasKey("offset") ?
+        Math.round(PixelUtil.toPixelFromDIP(initialAnchor.getDouble("offset"))) : 0;
+    view.setInitialAnchor(initialAnchor.getInt("index"), offset);
+  }
+
+  /**
+   * Children at these indices stick to the start of the viewport while scrolled past, until the
+   * next one pushes them out. They are positioned natively right before each draw, so no scroll
+   * events are needed and anchor corrections don't make them jump.
+   *
+   * @param view
+   * @param stickyHeaderIndices
+   */
+  @ReactProp(name = "stickyHeaderIndices")
+  public void setStickyHeaderIndices(FPHorizontalVisibleScrollView view, @Nullable ReadableArray stickyHeaderIndices) {
+    if (stickyHeaderIndices == null) {
+      view.setStickyHeaderIndices(null);
+      return;
+    }
+    int[] indices = new int[stickyHeaderIndices.size()];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = stickyHeaderIndices.getInt(i);
+    }
+    view.setStickyHeaderIndices(indices);
+  }
+
+  /**
+   * Set by js when onContentSizeChange is given. The view then reports the content size natively,
+   * at most once per frame and after anchor correction, instead of js listening to the layout of
+   * the content container.
+   *
+   * @param view
+   * @param sendContentSizeEvents
+   */
+  @ReactProp(name = "sendContentSizeEvents")
+  public void setSendContentSizeEvents(FPHorizontalVisibleScrollView view, boolean sendContentSizeEvents) {
+    view.setSendContentSizeEvents(sendContentSizeEvents);
+  }
+
   /**
    * Controls overScroll behaviour
    */
@@ -120,37 +364,48 @@ public class FPHorizontalVisibleScrollViewManager
     view.setOverScrollMode(ReactScrollViewHelper.parseOverScrollMode(value));
   }
 
+  @Override
+  public @Nullable Map<String, Integer> getCommandsMap() {
+    return VisibleScrollViewCommandHelper.getCommandsMap();
+  }
+
   @Override
   public void receiveCommand(
       FPHorizontalVisibleScrollView scrollView,
       int commandId,
       @Nullable ReadableArray args) {
-    ReactScrollViewCommandHelper.receiveCommand(this, scrollView, commandId, args);
+    VisibleScrollViewCommandHelper.receiveCommand(this, scrollView, commandId, args);
+  }
+
+  @Override
+  public void scrollToIndex(
+      FPHorizontalVisibleScrollView scrollView,
+      VisibleScrollViewCommandHelper.ScrollToIndexCommandData data) {
+    scrollView.scrollToIndex(data.mIndex, data.mOffset, data.mAnimated);
+  }
+
+  @Override
+  public void beginBatch(FPHorizontalVisibleScrollView scrollView) {
+    scrollView.beginBatch();
+  }
+
+  @Override
+  public void endBatch(FPHorizontalVisibleScrollView scrollView) {
+    scrollView.endBatch();
   }
 
   @Override
   public void scrollTo(
       FPHorizontalVisibleScrollView scrollView,
       ReactScrollViewCommandHelper.ScrollToCommandData data) {
-    if (data.mAnimated) {
-      scrollView.smoothScrollTo(data.mDestX, data.mDestY);
-    } else {
-      scrollView.scrollTo(data.mDestX, data.mDestY);
-    }
+    scrollView.queueScrollTo(data.mDestX, data.mDestY, data.mAnimated);
   }
 
   @Override
   public void scrollToEnd(
       FPHorizontalVisibleScrollView scrollView,
       ReactScrollViewCommandHelper.ScrollToEndCommandData data) {
-    // ScrollView always has one child - the scrollable area
-    int right =
-      scrollView.getChildAt(0).getWidth() + scrollView.getPaddingRight();
-    if (data.mAnimated) {
-      scrollView.smoothScrollTo(right, scrollView.getScrollY());
-    } else {
-      scrollView.scrollTo(right, scrollView.getScrollY());
-    }
+    scrollView.queueScrollToEnd(data.mAnimated);
   }
 
   /**
@@ -211,4 +466,9 @@ public class FPHorizontalVisibleScrollViewManager
     float alphaComponent = color == null ? YogaConstants.UNDEFINED : (float) ((int)color >>> 24);
     view.setBorderColor(SPACING_TYPES[index], rgbComponent, alphaComponent);
   }
+
+  @Override
+  public @Nullable Map getExportedCustomDirectEventTypeConstants() {
+    return FPVisibleScrollViewManager.createExportedCustomDirectEventTypeConstants();
+  }
 }
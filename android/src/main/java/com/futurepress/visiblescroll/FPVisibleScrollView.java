@@ -47,123 +47,252 @@ import com.facebook.react.views.scroll.ReactScrollView;
  */
 public class FPVisibleScrollView extends ReactScrollView implements ReactClippingViewGroup {
 
-  private View contentView;
-
-  private int counterX = 0;
-  private int counterY = 0;
+  private final VisibleScrollEngine mEngine;
 
   public FPVisibleScrollView(ReactContext context) {
     this(context, null);
   }
 
   public FPVisibleScrollView(ReactContext context, @Nullable FpsListener fpsListener) {
-    super(context, fpsListener);
-  }
-
-  private final View.OnLayoutChangeListener
-          mContentLayoutChangeListener = new View.OnLayoutChangeListener() {
-
-    @Override
-    public void onLayoutChange(
-            View v,
-            int left,
-            int top,
-            int right,
-            int bottom,
-            int oldLeft,
-            int oldTop,
-            int oldRight,
-            int oldBottom) {
-
-      if (counterX > 0 || counterY > 0){
-        scrollTo(counterX, counterY);
-        updateClippingRect();
-        counterX = 0;
-        counterY = 0;
-      }
-    }
-  };
-
-  private final View.OnLayoutChangeListener
-          mChildLayoutChangeListener = new View.OnLayoutChangeListener() {
-
-    @Override
-    public void onLayoutChange(
-            View v,
-            int left,
-            int top,
-            int right,
-            int bottom,
-            int oldLeft,
-            int oldTop,
-            int oldRight,
-            int oldBottom) {
-
-      int oldHeight = (oldBottom - oldTop);
-      int newHeight = (bottom - top);
-      int changedHeight = (newHeight - oldHeight);
-
-      int oldWidth = (oldRight - oldLeft);
-      int newWidth = (right - left);
-      int changedWidth = (newWidth - oldWidth);
-
-      int offsetX = getScrollX();
-      int offsetY = getScrollX();
-
-      int changedLeft = (left - oldLeft);
-      int changedTop = (left - oldLeft);
-
-      if (left <= offsetX && right < changedLeft + contentView.getWidth() && newWidth > 0) {
-        counterX = counterX + offsetX + newWidth;
-      } else if (oldLeft <= offsetX && changedLeft != 0) {
-        counterX = counterX + offsetX + changedLeft;
-      }
-
-      if (top <= offsetY && bottom < changedTop + contentView.getHeight() && newHeight > 0) {
-        counterY = counterY + offsetY + newHeight;
-      } else if (oldLeft <= offsetY && changedTop != 0) {
-        counterY = counterY + offsetY + changedTop;
-      }
+    this(context, fpsListener, null);
+  }
 
-    }
-  };
+  public FPVisibleScrollView(
+      ReactContext context,
+      @Nullable FpsListener fpsListener,
+      @Nullable VisibleScrollMetricsRegistry metricsRegistry) {
+    // The engine drives the FpsListener and momentum events itself, so the stock view never
+    // starts its polling runnable.
+    super(context, null);
+    mEngine = new VisibleScrollEngine(
+        this,
+        ScrollAxis.VERTICAL,
+        ReactScrollView.class,
+        fpsListener,
+        metricsRegistry,
+        new VisibleScrollEngine.Host() {
+          @Override
+          public void updateClippingRectUnconditionally() {
+            FPVisibleScrollView.super.updateClippingRect();
+          }
+
+          @Override
+          public void smoothScrollTo(int offset) {
+            FPVisibleScrollView.this.smoothScrollTo(getScrollX(), offset);
+          }
+        });
+  }
 
-  private final ViewGroup.OnHierarchyChangeListener
-          mChildHierarchyChangeListener = new ViewGroup.OnHierarchyChangeListener() {
+  public void setMaintainVisibleContentPosition(
+      boolean enabled,
+      int minIndexForVisible,
+      int autoscrollToTopThreshold) {
+    mEngine.setMaintainVisibleContentPosition(
+        enabled,
+        minIndexForVisible,
+        autoscrollToTopThreshold);
+  }
 
-    @Override
-    public void onChildViewAdded(View parent,
-                                 View child) {
+  /**
+   * @return the distance in pixels between the anchor child and its recorded position after the
+   *     last correction. Non-zero when the scroll had to be clamped to the content bounds.
+   */
+  public int getLastAnchorError() {
+    return mEngine.getLastAnchorError();
+  }
 
-      child.addOnLayoutChangeListener(mChildLayoutChangeListener);
+  @Override
+  public void updateClippingRect() {
+    mEngine.updateClippingRect();
+  }
 
-    }
+  @Override
+  public void getClippingRect(Rect outClippingRect) {
+    super.getClippingRect(outClippingRect);
+    mEngine.extendClippingRect(outClippingRect);
+  }
+
+  public void setRecycleDistance(int recycleDistance) {
+    mEngine.setRecycleDistance(recycleDistance);
+  }
+
+  public void setFlingLookaheadTime(int flingLookaheadTime) {
+    mEngine.setFlingLookaheadTime(flingLookaheadTime);
+  }
+
+  public void setFlingLookaheadMaxDistance(int flingLookaheadMaxDistance) {
+    mEngine.setFlingLookaheadMaxDistance(flingLookaheadMaxDistance);
+  }
+
+  public void setIdleWorkBudget(int idleWorkBudget) {
+    mEngine.setIdleWorkBudget(idleWorkBudget);
+  }
+
+  public void setSendVisibleItemsEvents(boolean sendVisibleItemsEvents) {
+    mEngine.setSendVisibleItemsEvents(sendVisibleItemsEvents);
+  }
+
+  /**
+   * Scroll commands from JS are queued, and only the last one issued before the next draw runs.
+   */
+  public void queueScrollTo(int x, int y, boolean animated) {
+    mEngine.scrollTo(y, animated);
+  }
 
-    @Override
-    public void onChildViewRemoved(View parent, View child) {
+  public void queueScrollToEnd(boolean animated) {
+    mEngine.scrollToEnd(animated);
+  }
+
+  public void scrollToIndex(int index, int offset, boolean animated) {
+    mEngine.scrollToIndex(index, offset, animated);
+  }
 
-      child.removeOnLayoutChangeListener(mChildLayoutChangeListener);
+  /**
+   * Until the matching {@link #endBatch}, content changes are not anchored, clipped or reported
+   * one by one, but all together once the batch is over.
+   */
+  public void beginBatch() {
+    mEngine.beginBatch();
+  }
+
+  public void endBatch() {
+    mEngine.endBatch();
+  }
+
+  public void setSendMaterializeRangeEvents(boolean sendMaterializeRangeEvents) {
+    mEngine.setSendMaterializeRangeEvents(sendMaterializeRangeEvents);
+  }
+
+  public void setMaterializeDistance(int materializeDistance) {
+    mEngine.setMaterializeDistance(materializeDistance);
+  }
+
+  /**
+   * Scrolls to {@code anchorOffset} pixels past the start of the child at {@code anchorIndex} once
+   * it is laid out, see {@link VisibleScrollEngine#setInitialAnchor}.
+   */
+  public void setInitialAnchor(int anchorIndex, int anchorOffset) {
+    mEngine.setInitialAnchor(anchorIndex, anchorOffset);
+  }
+
+  /**
+   * @return the index of the first visible child, or -1 if there is none.
+   */
+  public int getAnchorIndex() {
+    return mEngine.getAnchorIndex();
+  }
+
+  /**
+   * @return how far in pixels past the start of the first visible child the viewport starts.
+   */
+  public int getAnchorOffset() {
+    return mEngine.getAnchorOffset();
+  }
+
+  public void setStickyHeaderIndices(@Nullable int[] stickyHeaderIndices) {
+    mEngine.setStickyHeaderIndices(stickyHeaderIndices);
+  }
+
+  public void setSendContentSizeEvents(boolean sendContentSizeEvents) {
+    mEngine.setSendContentSizeEvents(sendContentSizeEvents);
+  }
+
+  public void setTrimDistance(int trimDistance) {
+    mEngine.setTrimDistance(trimDistance);
+  }
+
+  public void setPrefetchDistance(int prefetchDistance) {
+    mEngine.setPrefetchDistance(prefetchDistance);
+  }
+
+  public void setPrefetchDistanceScreens(float prefetchDistanceScreens) {
+    mEngine.setPrefetchDistanceScreens(prefetchDistanceScreens);
+  }
+
+  public void setScrollEventThrottle(int scrollEventThrottle) {
+    mEngine.setScrollEventThrottle(scrollEventThrottle);
+  }
+
+  public void setScrollEventThrottleDistance(int scrollEventThrottleDistance) {
+    mEngine.setScrollEventThrottleDistance(scrollEventThrottleDistance);
+  }
+
+  @Override
+  public void setScrollPerfTag(@Nullable String scrollPerfTag) {
+    super.setScrollPerfTag(scrollPerfTag);
+    mEngine.setScrollPerfTag(scrollPerfTag);
+  }
+
+  @Override
+  public void setSendMomentumEvents(boolean sendMomentumEvents) {
+    mEngine.setSendMomentumEvents(sendMomentumEvents);
+  }
+
+  public void setSnapToChildren(boolean snapToChildren) {
+    mEngine.setSnapToChildren(snapToChildren);
+  }
+
+  @Override
+  public void fling(int velocity) {
+    if (mEngine.isSnappingToChildren()) {
+      mEngine.snap(velocity);
+    } else {
+      super.fling(velocity);
     }
-  };
+    mEngine.onFling(false);
+  }
 
   @Override
-  public void addView(View child, int index) {
-    child.addOnLayoutChangeListener(mContentLayoutChangeListener);
+  public boolean onInterceptTouchEvent(MotionEvent ev) {
+    boolean intercepted = super.onInterceptTouchEvent(ev);
+    if (intercepted) {
+      mEngine.onDragStart();
+    }
+    return intercepted;
+  }
+
+  @Override
+  public boolean onTouchEvent(MotionEvent ev) {
+    int action = ev.getAction() & MotionEvent.ACTION_MASK;
+    boolean touchEnding = action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL;
+    if (touchEnding) {
+      // The stock view sends the drag end event while handling it.
+      mEngine.flushScrollEvent();
+    }
+    boolean handled = super.onTouchEvent(ev);
+    if (touchEnding) {
+      mEngine.onDragEnd();
+    }
+    return handled;
+  }
 
-    ViewGroup viewGroup = (ViewGroup) child;
+  @Override
+  protected void onScrollChanged(int x, int y, int oldX, int oldY) {
+    super.onScrollChanged(x, y, oldX, oldY);
+    mEngine.onScrollChanged(y - oldY);
+  }
 
-    viewGroup.setOnHierarchyChangeListener(mChildHierarchyChangeListener);
+  @Override
+  protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+    mEngine.onAttachedToWindow();
+  }
 
+  @Override
+  protected void onDetachedFromWindow() {
+    mEngine.onDetachedFromWindow();
+    super.onDetachedFromWindow();
+  }
 
+  @Override
+  public void addView(View child, int index) {
     super.addView(child, index);
-
-    contentView = child;
+    mEngine.onContentViewAdded(child);
   }
 
   @Override
   public void removeView(View child) {
-    child.removeOnLayoutChangeListener(mChildLayoutChangeListener);
-
+    mEngine.onContentViewRemoved(child);
     super.removeView(child);
   }
 }
@@ -17,6 +17,7 @@ import android.graphics.Color;
 import android.view.View;
 
 import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.common.MapBuilder;
 import com.facebook.react.module.annotations.ReactModule;
 import com.facebook.react.uimanager.PixelUtil;
@@ -43,7 +44,7 @@ import com.facebook.react.views.scroll.ReactScrollViewHelper;
 @ReactModule(name = FPVisibleScrollViewManager.REACT_CLASS)
 public class FPVisibleScrollViewManager
     extends ViewGroupManager<FPVisibleScrollView>
-    implements ReactScrollViewCommandHelper.ScrollCommandHandler<FPVisibleScrollView> {
+    implements VisibleScrollViewCommandHelper.VisibleScrollCommandHandler<FPVisibleScrollView> {
 
   protected static final String REACT_CLASS = "FPVisibleScrollView";
 
@@ -52,13 +53,21 @@ public class FPVisibleScrollViewManager
   };
 
   private @Nullable FpsListener mFpsListener = null;
+  private @Nullable VisibleScrollMetricsRegistry mMetricsRegistry = null;
 
   public FPVisibleScrollViewManager() {
     this(null);
   }
 
   public FPVisibleScrollViewManager(@Nullable FpsListener fpsListener) {
+    this(fpsListener, null);
+  }
+
+  public FPVisibleScrollViewManager(
+      @Nullable FpsListener fpsListener,
+      @Nullable VisibleScrollMetricsRegistry metricsRegistry) {
     mFpsListener = fpsListener;
+    mMetricsRegistry = metricsRegistry;
   }
 
   @Override
@@ -68,7 +77,7 @@ public class FPVisibleScrollViewManager
 
   @Override
   public FPVisibleScrollView createViewInstance(ThemedReactContext context) {
-    return new FPVisibleScrollView(context, mFpsListener);
+    return new FPVisibleScrollView(context, mFpsListener, mMetricsRegistry);
   }
 
   @ReactProp(name = "scrollEnabled", defaultBoolean = true)
@@ -87,9 +96,10 @@ public class FPVisibleScrollViewManager
   }
 
   /**
-   * Computing momentum events is potentially expensive since we post a runnable on the UI thread
-   * to see when it is done.  We only do that if {@param sendMomentumEvents} is set to true.  This
-   * is handled automatically in js by checking if there is a listener on the momentum events.
+   * Momentum events are only sent if {@param sendMomentumEvents} is set to true.  This is handled
+   * automatically in js by checking if there is a listener on the momentum events.  The end of a
+   * fling is detected from the scroller in a frame callback that is only registered while the
+   * view is moving, so leaving them on costs little.
    *
    * @param view
    * @param sendMomentumEvents
@@ -100,8 +110,9 @@ public class FPVisibleScrollViewManager
   }
 
   /**
-   * Tag used for logging scroll performance on this scroll view. Will force momentum events to be
-   * turned on (see setSendMomentumEvents).
+   * Tag used for logging scroll performance on this scroll view. Frame timing is reported while
+   * the view is dragged or flinging. Also collects this view's metrics under the tag, see
+   * {@link VisibleScrollMetricsModule}.
    *
    * @param view
    * @param scrollPerfTag
@@ -122,6 +133,234 @@ public class FPVisibleScrollViewManager
     view.setEndFillColor(color);
   }
 
+  /**
+   * When set, the first visible child at or after {@code minIndexForVisible} is kept at the same
+   * position across content changes. If {@code autoscrollToTopThreshold} is set and the view was
+   * scrolled within that distance of the start, it scrolls back to the start after adjusting.
+   * @param view
+   * @param value
+   */
+  @ReactProp(name = "maintainVisibleContentPosition")
+  public void setMaintainVisibleContentPosition(FPVisibleScrollView view, @Nullable ReadableMap value) {
+    if (value == null) {
+      view.setMaintainVisibleContentPosition(false, 0, -1);
+      return;
+    }
+    int minIndexForVisible = value.hasKey("minIndexForVisible") ?
+        value.getInt("minIndexForVisible") : 0;
+    int autoscrollToTopThreshold =
+        value.hasKey("autoscrollToTopThreshold") && !value.isNull("autoscrollToTopThreshold") ?
+            (int) PixelUtil.toPixelFromDIP(value.getDouble("autoscrollToTopThreshold")) : -1;
+    view.setMaintainVisibleContentPosition(true, minIndexForVisible, autoscrollToTopThreshold);
+  }
+
+  /**
+   * Computing the visible child range costs two binary searches per scroll. We only do that if
+   * {@param sendVisibleItemsEvents} is set to true, which js does when there is an
+   * onVisibleItemsChanged listener.
+   *
+   * @param view
+   * @param sendVisibleItemsEvents
+   */
+  @ReactProp(name = "sendVisibleItemsEvents")
+  public void setSendVisibleItemsEvents(FPVisibleScrollView view, boolean sendVisibleItemsEvents) {
+    view.setSendVisibleItemsEvents(sendVisibleItemsEvents);
+  }
+
+  /**
+   * Minimum interval in ms between scroll events. Changes in between are coalesced into one
+   * trailing event with the latest offset. 0 sends an event for every scroll change.
+   *
+   * @param view
+   * @param scrollEventThrottle
+   */
+  @ReactProp(name = "scrollEventThrottle")
+  public void setScrollEventThrottle(FPVisibleScrollView view, int scrollEventThrottle) {
+    view.setScrollEventThrottle(scrollEventThrottle);
+  }
+
+  /**
+   * Minimum distance the view has to scroll between scroll events, enforced together with
+   * scrollEventThrottle.
+   *
+   * @param view
+   * @param scrollEventThrottleDistance
+   */
+  @ReactProp(name = "scrollEventThrottleDistance")
+  public void setScrollEventThrottleDistance(FPVisibleScrollView view, float scrollEventThrottleDistance) {
+    view.setScrollEventThrottleDistance(
+        Math.round(PixelUtil.toPixelFromDIP(scrollEventThrottleDistance)));
+  }
+
+  /**
+   * Distance past the viewport beyond which content children may be unmounted. When either edge
+   * of the content reaches further, onDropRequest fires with the range of children entirely
+   * beyond it, once per content size change. Dropping children before the viewport keeps the
+   * visible content in place.
+   *
+   * @param view
+   * @param trimDistance
+   */
+  @ReactProp(name = "trimDistance")
+  public void setTrimDistance(FPVisibleScrollView view, float trimDistance) {
+    view.setTrimDistance(Math.round(PixelUtil.toPixelFromDIP(trimDistance)));
+  }
+
+  /**
+   * Distance from either edge of the content at which onPrefetch fires. Each edge fires once per
+   * content size change. Combined with prefetchDistanceScreens, the larger distance wins.
+   *
+   * @param view
+   * @param prefetchDistance
+   */
+  @ReactProp(name = "prefetchDistance")
+  public void setPrefetchDistance(FPVisibleScrollView view, float prefetchDistance) {
+    view.setPrefetchDistance(Math.round(PixelUtil.toPixelFromDIP(prefetchDistance)));
+  }
+
+  /**
+   * Same as prefetchDistance, in multiples of the viewport size.
+   *
+   * @param view
+   * @param prefetchDistanceScreens
+   */
+  @ReactProp(name = "prefetchDistanceScreens")
+  public void setPrefetchDistanceScreens(FPVisibleScrollView view, float prefetchDistanceScreens) {
+    view.setPrefetchDistanceScreens(prefetchDistanceScreens);
+  }
+
+  /**
+   * Children further than this from the viewport are released to JS, which renders placeholders
+   * of their measured size in their place. 0 turns recycling off.
+   *
+   * @param view
+   * @param recycleDistance
+   */
+  @ReactProp(name = "recycleDistance")
+  public void setRecycleDistance(FPVisibleScrollView view, float recycleDistance) {
+    view.setRecycleDistance(Math.round(PixelUtil.toPixelFromDIP(recycleDistance)));
+  }
+
+  /**
+   * When set, flings come to rest on the start edge of a content child, picked natively from the
+   * children's current layout where the fling would have ended.
+   *
+   * @param view
+   * @param snapToChildren
+   */
+  @ReactProp(name = "snapToChildren")
+  public void setSnapToChildren(FPVisibleScrollView view, boolean snapToChildren) {
+    view.setSnapToChildren(snapToChildren);
+  }
+
+  /**
+   * While flinging with removeClippedSubviews, children are attached this many milliseconds of
+   * travel before they scroll in, at the current fling velocity. Trades memory for fewer blank
+   * frames; the window shrinks back as the fling slows down.
+   *
+   * @param view
+   * @param flingLookaheadTime
+   */
+  @ReactProp(name = "flingLookaheadTime")
+  public void setFlingLookaheadTime(FPVisibleScrollView view, int flingLookaheadTime) {
+    view.setFlingLookaheadTime(flingLookaheadTime);
+  }
+
+  @ReactProp(name = "flingLookaheadMaxDistance")
+  public void setFlingLookaheadMaxDistance(FPVisibleScrollView view, float flingLookaheadMaxDistance) {
+    view.setFlingLookaheadMaxDistance(
+        Math.round(PixelUtil.toPixelFromDIP(flingLookaheadMaxDistance)));
+  }
+
+  /**
+   * Non-urgent work, such as detaching children after a fling, waits until the UI thread is idle
+   * and the view has stopped scrolling. This caps how many milliseconds of it run per idle slot.
+   *
+   * @param view
+   * @param idleWorkBudget
+   */
+  @ReactProp(name = "idleWorkBudget")
+  public void setIdleWorkBudget(FPVisibleScrollView view, int idleWorkBudget) {
+    view.setIdleWorkBudget(idleWorkBudget);
+  }
+
+  /**
+   * Set by js when children above the viewport are rendered as estimated-size placeholders. The
+   * view then reports which children are within materializeDistance of the viewport, so they can
+   * be rendered for real before they scroll in.
+   *
+   * @param view
+   * @param sendMaterializeRangeEvents
+   */
+  @ReactProp(name = "sendMaterializeRangeEvents")
+  public void setSendMaterializeRangeEvents(FPVisibleScrollView view, boolean sendMaterializeRangeEvents) {
+    view.setSendMaterializeRangeEvents(sendMaterializeRangeEvents);
+  }
+
+  /**
+   * Unset, the materialize distance is one viewport.
+   *
+   * @param view
+   * @param materializeDistance
+   */
+  @ReactProp(name = "materializeDistance", defaultFloat = -1)
+  public void setMaterializeDistance(FPVisibleScrollView view, float materializeDistance) {
+    view.setMaterializeDistance(materializeDistance < 0 ?
+        -1 : Math.round(PixelUtil.toPixelFromDIP(materializeDistance)));
+  }
+
+  /**
+   * Set once by js from the initialAnchor prop: the view scrolls to {@code offset} past the start
+   * of the child at {@code index} on the first layout where that child exists.
+   *
+   * @param view
+   * @param initialAnchor
+   */
+  @ReactProp(name = "initialAnchor")
+  public void setInitialAnchor(FPVisibleScrollView view, @Nullable ReadableMap initialAnchor) {
+    if (initialAnchor == null) {
+      view.setInitialAnchor(-1, 0);
+      return;
+    }
+    int offset = initialAnchor.hasKey("offset") ?
+        Math.round(PixelUtil.toPixelFromDIP(initialAnchor.getDouble("offset"))) : 0;
+    view.setInitialAnchor(initialAnchor.getInt("index"), offset);
+  }
+
+  /**
+   * Children at these indices stick to the start of the viewport while scrolled past, until the
+   * next one pushes them out. They are positioned natively right before each draw, so no scroll
+   * events are needed and anchor corrections don't make them jump.
+   *
+   * @param view
+   * @param stickyHeaderIndices
+   */
+  @ReactProp(name = "stickyHeaderIndices")
+  public void setStickyHeaderIndices(FPVisibleScrollView view, @Nullable ReadableArray stickyHeaderIndices) {
+    if (stickyHeaderIndices == null) {
+      view.setStickyHeaderIndices(null);
+      return;
+    }
+    int[] indices = new int[stickyHeaderIndices.size()];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = stickyHeaderIndices.getInt(i);
+    }
+    view.setStickyHeaderIndices(indices);
+  }
+
+  /**
+   * Set by js when onContentSizeChange is given. The view then reports the content size natively,
+   * at most once per frame and after anchor correction, instead of js listening to the layout of
+   * the content container.
+   *
+   * @param view
+   * @param sendContentSizeEvents
+   */
+  @ReactProp(name = "sendContentSizeEvents")
+  public void setSendContentSizeEvents(FPVisibleScrollView view, boolean sendContentSizeEvents) {
+    view.setSendContentSizeEvents(sendContentSizeEvents);
+  }
+
   /**
    * Controls overScroll behaviour
    */
@@ -132,7 +371,7 @@ public class FPVisibleScrollViewManager
 
   @Override
   public @Nullable Map<String, Integer> getCommandsMap() {
-    return ReactScrollViewCommandHelper.getCommandsMap();
+    return VisibleScrollViewCommandHelper.getCommandsMap();
   }
 
   @Override
@@ -140,18 +379,31 @@ public class FPVisibleScrollViewManager
       FPVisibleScrollView scrollView,
       int commandId,
       @Nullable ReadableArray args) {
-    ReactScrollViewCommandHelper.receiveCommand(this, scrollView, commandId, args);
+    VisibleScrollViewCommandHelper.receiveCommand(this, scrollView, commandId, args);
+  }
+
+  @Override
+  public void scrollToIndex(
+      FPVisibleScrollView scrollView,
+      VisibleScrollViewCommandHelper.ScrollToIndexCommandData data) {
+    scrollView.scrollToIndex(data.mIndex, data.mOffset, data.mAnimated);
+  }
+
+  @Override
+  public void beginBatch(FPVisibleScrollView scrollView) {
+    scrollView.beginBatch();
+  }
+
+  @Override
+  public void endBatch(FPVisibleScrollView scrollView) {
+    scrollView.endBatch();
   }
 
   @Override
   public void scrollTo(
       FPVisibleScrollView scrollView,
       ReactScrollViewCommandHelper.ScrollToCommandData data) {
-    if (data.mAnimated) {
-      scrollView.smoothScrollTo(data.mDestX, data.mDestY);
-    } else {
-      scrollView.scrollTo(data.mDestX, data.mDestY);
-    }
+    scrollView.queueScrollTo(data.mDestX, data.mDestY, data.mAnimated);
   }
   @ReactPropGroup(names = {
       ViewProps.BORDER_RADIUS,
@@ -205,14 +457,7 @@ public class FPVisibleScrollViewManager
   public void scrollToEnd(
       FPVisibleScrollView scrollView,
       ReactScrollViewCommandHelper.ScrollToEndCommandData data) {
-    // ScrollView always has one child - the scrollable area
-    int bottom =
-      scrollView.getChildAt(0).getHeight() + scrollView.getPaddingBottom();
-    if (data.mAnimated) {
-      scrollView.smoothScrollTo(scrollView.getScrollX(), bottom);
-    } else {
-      scrollView.scrollTo(scrollView.getScrollX(), bottom);
-    }
+    scrollView.queueScrollToEnd(data.mAnimated);
   }
 
   @Override
@@ -228,6 +473,12 @@ public class FPVisibleScrollViewManager
         .put(ScrollEventType.ANIMATION_END.getJSEventName(), MapBuilder.of("registrationName", "onScrollAnimationEnd"))
         .put(ScrollEventType.MOMENTUM_BEGIN.getJSEventName(), MapBuilder.of("registrationName", "onMomentumScrollBegin"))
         .put(ScrollEventType.MOMENTUM_END.getJSEventName(), MapBuilder.of("registrationName", "onMomentumScrollEnd"))
+        .put(VisibleScrollEventType.VISIBLE_ITEMS_CHANGED.getJSEventName(), MapBuilder.of("registrationName", "onVisibleItemsChanged"))
+        .put(VisibleScrollEventType.PREFETCH.getJSEventName(), MapBuilder.of("registrationName", "onPrefetch"))
+        .put(VisibleScrollEventType.MATERIALIZE_RANGE_CHANGED.getJSEventName(), MapBuilder.of("registrationName", "onMaterializeRangeChanged"))
+        .put(VisibleScrollEventType.RECYCLE_RANGE_CHANGED.getJSEventName(), MapBuilder.of("registrationName", "onRecycleRangeChanged"))
+        .put(VisibleScrollEventType.CONTENT_SIZE_CHANGED.getJSEventName(), MapBuilder.of("registrationName", "onContentSizeChanged"))
+        .put(VisibleScrollEventType.DROP_REQUEST.getJSEventName(), MapBuilder.of("registrationName", "onDropRequest"))
         .build();
   }
 }
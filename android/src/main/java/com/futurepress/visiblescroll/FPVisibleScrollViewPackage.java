@@ -18,9 +18,27 @@ import com.futurepress.visiblescroll.FPVisibleScrollViewManager;
 
 public class FPVisibleScrollViewPackage implements ReactPackage {
 
+    private final VisibleScrollMetricsRegistry mMetricsRegistry = new VisibleScrollMetricsRegistry();
+    private final boolean mRecordFrameTimings;
+
+    public FPVisibleScrollViewPackage() {
+        this(true);
+    }
+
+    /**
+     * @param recordFrameTimings whether views with a scrollPerfTag record the duration of their
+     *     scrolling frames, read through {@link VisibleScrollMetricsModule} with the tag's metrics.
+     */
+    public FPVisibleScrollViewPackage(boolean recordFrameTimings) {
+        mRecordFrameTimings = recordFrameTimings;
+    }
+
     @Override
     public List<NativeModule> createNativeModules(ReactApplicationContext reactApplicationContext) {
-        return new ArrayList<>();
+        return Arrays.<NativeModule>asList(
+                new VisibleScrollMetricsModule(reactApplicationContext, mMetricsRegistry),
+                new VisibleScrollAnchorModule(reactApplicationContext)
+        );
     }
 
     @Override
@@ -30,9 +48,12 @@ public class FPVisibleScrollViewPackage implements ReactPackage {
 
     @Override
     public List<ViewManager> createViewManagers(ReactApplicationContext reactContext) {
+        FpsListener fpsListener = mRecordFrameTimings ?
+                new FrameTimingFpsListener(reactContext, mMetricsRegistry) :
+                null;
         return Arrays.<ViewManager>asList(
-                new FPVisibleScrollViewManager(),
-                new FPHorizontalVisibleScrollViewManager()
+                new FPVisibleScrollViewManager(fpsListener, mMetricsRegistry),
+                new FPHorizontalVisibleScrollViewManager(fpsListener, mMetricsRegistry)
         );
     }
 }
@@ -0,0 +1,95 @@
+package com.futurepress.visiblescroll;
+
+import java.util.ArrayList;
+
+import android.content.Context;
+import android.view.Choreographer;
+import android.view.WindowManager;
+
+import com.facebook.react.bridge.UiThreadUtil;
+import com.facebook.react.views.scroll.FpsListener;
+
+/**
+ * {@link FpsListener} that records how long each frame took into the
+ * {@link FrameTimingHistogram} of every scrollPerfTag enabled at the time. The visible scroll
+ * views enable their tag while they are dragged or flinging, so only scrolling frames are counted.
+ *
+ * <p>A single frame callback serves all tags and is only registered while at least one is
+ * enabled.
+ */
+public class FrameTimingFpsListener implements FpsListener {
+
+  private static final long DEFAULT_FRAME_INTERVAL_NANOS = 16666667;
+
+  private final VisibleScrollMetricsRegistry mRegistry;
+  private final long mFrameIntervalNanos;
+
+  // One entry per enable, so a tag stays enabled until every view that enabled it disables it.
+  private final ArrayList<String> mEnabledTags = new ArrayList<>();
+  // The distinct histograms of the enabled tags, which is what each frame walks.
+  private final ArrayList<FrameTimingHistogram> mHistograms = new ArrayList<>();
+  private boolean mCallbackPosted = false;
+  private long mLastFrameTimeNanos = 0;
+
+  private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+    @Override
+    public void doFrame(long frameTimeNanos) {
+      if (mLastFrameTimeNanos != 0) {
+        long durationNanos = frameTimeNanos - mLastFrameTimeNanos;
+        for (int i = 0; i < mHistograms.size(); i++) {
+          mHistograms.get(i).record(durationNanos, mFrameIntervalNanos);
+        }
+      }
+      mLastFrameTimeNanos = frameTimeNanos;
+      Choreographer.getInstance().postFrameCallback(this);
+    }
+  };
+
+  public FrameTimingFpsListener(Context context, VisibleScrollMetricsRegistry registry) {
+    mRegistry = registry;
+    WindowManager windowManager =
+        (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+    float refreshRate = windowManager != null ?
+        windowManager.getDefaultDisplay().getRefreshRate() :
+        0;
+    mFrameIntervalNanos = refreshRate > 0 ?
+        Math.round(1e9 / refreshRate) :
+        DEFAULT_FRAME_INTERVAL_NANOS;
+  }
+
+  @Override
+  public void enable(String tag) {
+    UiThreadUtil.assertOnUiThread();
+    FrameTimingHistogram histogram = mRegistry.getOrCreate(tag).frameTiming;
+    if (!mEnabledTags.contains(tag)) {
+      mHistograms.add(histogram);
+    }
+    mEnabledTags.add(tag);
+    if (!mCallbackPosted) {
+      mCallbackPosted = true;
+      // The first frame only sets the start time, since the previous one was not timed.
+      mLastFrameTimeNanos = 0;
+      Choreographer.getInstance().postFrameCallback(mFrameCallback);
+    }
+  }
+
+  @Override
+  public void disable(String tag) {
+    UiThreadUtil.assertOnUiThread();
+    if (!mEnabledTags.remove(tag)) {
+      return;
+    }
+    if (!mEnabledTags.contains(tag)) {
+      mHistograms.remove(mRegistry.getOrCreate(tag).frameTiming);
+    }
+    if (mEnabledTags.isEmpty() && mCallbackPosted) {
+      mCallbackPosted = false;
+      Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+    }
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return !mEnabledTags.isEmpty();
+  }
+}
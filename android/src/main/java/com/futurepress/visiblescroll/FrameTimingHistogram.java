@@ -0,0 +1,83 @@
+package com.futurepress.visiblescroll;
+
+import java.util.Arrays;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * Durations of the frames drawn while the visible scroll views sharing one scrollPerfTag were
+ * moving, counted into fixed one millisecond buckets so that recording a frame never allocates.
+ * Only written on the UI thread.
+ */
+public class FrameTimingHistogram {
+
+  // The last bucket also holds every longer frame.
+  private static final int BUCKET_COUNT = 100;
+  private static final long NANOS_PER_MS = 1000000;
+
+  private final int[] mBuckets = new int[BUCKET_COUNT];
+  private int mFrames;
+  private int mJankyFrames;
+  private long mDroppedFrames;
+
+  /**
+   * @param frameIntervalNanos the display's refresh interval. A frame that took longer than that
+   *     hid the refreshes it overlapped, which are counted as dropped.
+   */
+  public void record(long durationNanos, long frameIntervalNanos) {
+    mBuckets[(int) Math.min(durationNanos / NANOS_PER_MS, BUCKET_COUNT - 1)]++;
+    mFrames++;
+    long dropped = (durationNanos + frameIntervalNanos / 2) / frameIntervalNanos - 1;
+    if (dropped > 0) {
+      mJankyFrames++;
+      mDroppedFrames += dropped;
+    }
+  }
+
+  public void reset() {
+    Arrays.fill(mBuckets, 0);
+    mFrames = 0;
+    mJankyFrames = 0;
+    mDroppedFrames = 0;
+  }
+
+  /**
+   * @return the duration in milliseconds within which {@code fraction} of the frames were drawn,
+   *     rounded up to the bucket, or 0 if no frame was recorded.
+   */
+  public int getPercentile(double fraction) {
+    if (mFrames == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(fraction * mFrames);
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += mBuckets[i];
+      if (seen >= rank) {
+        return i + 1;
+      }
+    }
+    return BUCKET_COUNT;
+  }
+
+  public void writeTo(WritableMap map) {
+    map.putInt("frames", mFrames);
+    map.putInt("jankyFrames", mJankyFrames);
+    map.putDouble("droppedFrames", mDroppedFrames);
+    map.putInt("frameP50Ms", getPercentile(0.5));
+    map.putInt("frameP95Ms", getPercentile(0.95));
+    map.putInt("frameP99Ms", getPercentile(0.99));
+    // Trailing empty buckets are left out; index i counts frames of i to i + 1 milliseconds.
+    int length = BUCKET_COUNT;
+    while (length > 0 && mBuckets[length - 1] == 0) {
+      length--;
+    }
+    WritableArray buckets = Arguments.createArray();
+    for (int i = 0; i < length; i++) {
+      buckets.pushInt(mBuckets[i]);
+    }
+    map.putArray("frameHistogram", buckets);
+  }
+}
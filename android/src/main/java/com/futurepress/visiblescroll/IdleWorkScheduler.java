@@ -0,0 +1,126 @@
+package com.futurepress.visiblescroll;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.view.View;
+
+/**
+ * Runs non-urgent work for one scroll view while the UI thread is idle and the view is not
+ * scrolling, so that it doesn't compete with scroll frames.
+ *
+ * <p>Work runs from a {@link MessageQueue.IdleHandler}, which is called once the frame's messages
+ * have drained. Each idle slot stops taking tasks once the budget is used up and the rest waits
+ * for the slot after the next frame. While the view has scrolled recently, nothing runs and the
+ * scheduler checks again once the scroll has been still for a moment.
+ */
+final class IdleWorkScheduler {
+
+  interface Task {
+    void run();
+  }
+
+  private static final long QUIET_PERIOD_MS = 100;
+  private static final long DEFAULT_BUDGET_NANOS = 4000000;
+
+  private final View mView;
+  private final ArrayList<Task> mTasks = new ArrayList<>();
+  private long mBudgetNanos = DEFAULT_BUDGET_NANOS;
+  private long mLastScrollTime = 0;
+  private boolean mIdleHandlerRegistered = false;
+  private @Nullable VisibleScrollMetrics mMetrics;
+
+  // Posting anything makes the queue go idle again afterwards, which is what calls the handler.
+  private final Runnable mWakeUp = new Runnable() {
+    @Override
+    public void run() {
+    }
+  };
+
+  private final MessageQueue.IdleHandler mIdleHandler = new MessageQueue.IdleHandler() {
+    @Override
+    public boolean queueIdle() {
+      if (mTasks.isEmpty()) {
+        mIdleHandlerRegistered = false;
+        return false;
+      }
+      long quietFor = SystemClock.uptimeMillis() - mLastScrollTime;
+      if (quietFor < QUIET_PERIOD_MS) {
+        mView.removeCallbacks(mWakeUp);
+        mView.postDelayed(mWakeUp, QUIET_PERIOD_MS - quietFor);
+        return true;
+      }
+      runTasks();
+      if (mTasks.isEmpty()) {
+        mIdleHandlerRegistered = false;
+        return false;
+      }
+      mView.postOnAnimation(mWakeUp);
+      return true;
+    }
+  };
+
+  IdleWorkScheduler(View view) {
+    mView = view;
+  }
+
+  public void setMetrics(@Nullable VisibleScrollMetrics metrics) {
+    mMetrics = metrics;
+  }
+
+  /**
+   * Sets how long the tasks run in one idle slot may take, in milliseconds.
+   */
+  public void setBudget(int budgetMs) {
+    mBudgetNanos = budgetMs > 0 ? budgetMs * 1000000L : DEFAULT_BUDGET_NANOS;
+  }
+
+  /**
+   * Queues {@code task} unless it is already waiting. Must be called on the UI thread.
+   */
+  public void schedule(Task task) {
+    if (mTasks.contains(task)) {
+      return;
+    }
+    mTasks.add(task);
+    if (!mIdleHandlerRegistered) {
+      mIdleHandlerRegistered = true;
+      Looper.myQueue().addIdleHandler(mIdleHandler);
+    }
+  }
+
+  public void onScroll() {
+    mLastScrollTime = SystemClock.uptimeMillis();
+  }
+
+  public void cancelAll() {
+    mTasks.clear();
+    mView.removeCallbacks(mWakeUp);
+    if (mIdleHandlerRegistered) {
+      mIdleHandlerRegistered = false;
+      Looper.myQueue().removeIdleHandler(mIdleHandler);
+    }
+  }
+
+  private void runTasks() {
+    long startNanos = System.nanoTime();
+    long elapsedNanos = 0;
+    int ran = 0;
+    while (!mTasks.isEmpty() && elapsedNanos < mBudgetNanos) {
+      mTasks.remove(0).run();
+      ran++;
+      elapsedNanos = System.nanoTime() - startNanos;
+    }
+    if (mMetrics != null) {
+      mMetrics.idleTasksRun += ran;
+      mMetrics.idleWorkNanos += elapsedNanos;
+      if (!mTasks.isEmpty()) {
+        mMetrics.idleSlotsExhausted++;
+      }
+    }
+  }
+}
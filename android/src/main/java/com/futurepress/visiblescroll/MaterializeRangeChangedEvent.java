@@ -0,0 +1,62 @@
+package com.futurepress.visiblescroll;
+
+import android.support.v4.util.Pools;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.uimanager.events.Event;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
+
+/**
+ * Sent when the range of children within the materialize distance of the viewport changes. JS
+ * uses it to replace estimated-size placeholders with real children as they get close. Only the
+ * latest range matters, so queued events coalesce.
+ */
+public class MaterializeRangeChangedEvent extends Event<MaterializeRangeChangedEvent> {
+
+  private static final Pools.SynchronizedPool<MaterializeRangeChangedEvent> EVENTS_POOL =
+      new Pools.SynchronizedPool<>(3);
+
+  private int mFirst;
+  private int mLast;
+
+  public static MaterializeRangeChangedEvent obtain(int viewTag, int first, int last) {
+    MaterializeRangeChangedEvent event = EVENTS_POOL.acquire();
+    if (event == null) {
+      event = new MaterializeRangeChangedEvent();
+    }
+    event.init(viewTag, first, last);
+    return event;
+  }
+
+  @Override
+  public void onDispose() {
+    EVENTS_POOL.release(this);
+  }
+
+  private MaterializeRangeChangedEvent() {
+  }
+
+  private void init(int viewTag, int first, int last) {
+    super.init(viewTag);
+    mFirst = first;
+    mLast = last;
+  }
+
+  @Override
+  public String getEventName() {
+    return VisibleScrollEventType.MATERIALIZE_RANGE_CHANGED.getJSEventName();
+  }
+
+  @Override
+  public void dispatch(RCTEventEmitter rctEventEmitter) {
+    rctEventEmitter.receiveEvent(getViewTag(), getEventName(), serializeEventData());
+  }
+
+  private WritableMap serializeEventData() {
+    WritableMap event = Arguments.createMap();
+    event.putInt("first", mFirst);
+    event.putInt("last", mLast);
+    return event;
+  }
+}
@@ -0,0 +1,73 @@
+package com.futurepress.visiblescroll;
+
+import android.support.v4.util.Pools;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.uimanager.PixelUtil;
+import com.facebook.react.uimanager.events.Event;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
+
+/**
+ * Sent when the viewport comes within the prefetch distance of the start or end of the content.
+ */
+public class PrefetchEvent extends Event<PrefetchEvent> {
+
+  public static final int EDGE_START = 0;
+  public static final int EDGE_END = 1;
+
+  private static final Pools.SynchronizedPool<PrefetchEvent> EVENTS_POOL =
+      new Pools.SynchronizedPool<>(3);
+
+  private int mEdge;
+  private int mDistanceFromEdge;
+  private int mContentSize;
+
+  public static PrefetchEvent obtain(int viewTag, int edge, int distanceFromEdge, int contentSize) {
+    PrefetchEvent event = EVENTS_POOL.acquire();
+    if (event == null) {
+      event = new PrefetchEvent();
+    }
+    event.init(viewTag, edge, distanceFromEdge, contentSize);
+    return event;
+  }
+
+  @Override
+  public void onDispose() {
+    EVENTS_POOL.release(this);
+  }
+
+  private PrefetchEvent() {
+  }
+
+  private void init(int viewTag, int edge, int distanceFromEdge, int contentSize) {
+    super.init(viewTag);
+    mEdge = edge;
+    mDistanceFromEdge = distanceFromEdge;
+    mContentSize = contentSize;
+  }
+
+  @Override
+  public String getEventName() {
+    return VisibleScrollEventType.PREFETCH.getJSEventName();
+  }
+
+  @Override
+  public boolean canCoalesce() {
+    // A start and an end event can be queued in the same frame.
+    return false;
+  }
+
+  @Override
+  public void dispatch(RCTEventEmitter rctEventEmitter) {
+    rctEventEmitter.receiveEvent(getViewTag(), getEventName(), serializeEventData());
+  }
+
+  private WritableMap serializeEventData() {
+    WritableMap event = Arguments.createMap();
+    event.putString("edge", mEdge == EDGE_START ? "start" : "end");
+    event.putDouble("distanceFromEdge", PixelUtil.toDIPFromPixel(mDistanceFromEdge));
+    event.putDouble("contentSize", PixelUtil.toDIPFromPixel(mContentSize));
+    return event;
+  }
+}
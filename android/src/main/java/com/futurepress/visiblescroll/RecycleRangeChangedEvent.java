@@ -0,0 +1,90 @@
+package com.futurepress.visiblescroll;
+
+import android.support.v4.util.Pools;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.uimanager.events.Event;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
+
+/**
+ * Sent when the range of children within the recycle distance of the viewport changes. Children
+ * that left it are listed with their measured size, so JS can render a placeholder of that size
+ * in their place and let their native views go; children in the range are rendered for real.
+ */
+public class RecycleRangeChangedEvent extends Event<RecycleRangeChangedEvent> {
+
+  private static final Pools.SynchronizedPool<RecycleRangeChangedEvent> EVENTS_POOL =
+      new Pools.SynchronizedPool<>(3);
+
+  private int mFirst;
+  private int mLast;
+  private WritableArray mReleasedIndices;
+  private WritableArray mReleasedSizes;
+
+  /**
+   * @param releasedSizes the sizes of the children at {@code releasedIndices}, in dip
+   */
+  public static RecycleRangeChangedEvent obtain(
+      int viewTag,
+      int first,
+      int last,
+      WritableArray releasedIndices,
+      WritableArray releasedSizes) {
+    RecycleRangeChangedEvent event = EVENTS_POOL.acquire();
+    if (event == null) {
+      event = new RecycleRangeChangedEvent();
+    }
+    event.init(viewTag, first, last, releasedIndices, releasedSizes);
+    return event;
+  }
+
+  @Override
+  public void onDispose() {
+    mReleasedIndices = null;
+    mReleasedSizes = null;
+    EVENTS_POOL.release(this);
+  }
+
+  private RecycleRangeChangedEvent() {
+  }
+
+  private void init(
+      int viewTag,
+      int first,
+      int last,
+      WritableArray releasedIndices,
+      WritableArray releasedSizes) {
+    super.init(viewTag);
+    mFirst = first;
+    mLast = last;
+    mReleasedIndices = releasedIndices;
+    mReleasedSizes = releasedSizes;
+  }
+
+  @Override
+  public String getEventName() {
+    return VisibleScrollEventType.RECYCLE_RANGE_CHANGED.getJSEventName();
+  }
+
+  @Override
+  public boolean canCoalesce() {
+    // Each event only lists the children that just left the range, dropping one would keep them.
+    return false;
+  }
+
+  @Override
+  public void dispatch(RCTEventEmitter rctEventEmitter) {
+    rctEventEmitter.receiveEvent(getViewTag(), getEventName(), serializeEventData());
+  }
+
+  private WritableMap serializeEventData() {
+    WritableMap event = Arguments.createMap();
+    event.putInt("first", mFirst);
+    event.putInt("last", mLast);
+    event.putArray("releasedIndices", mReleasedIndices);
+    event.putArray("releasedSizes", mReleasedSizes);
+    return event;
+  }
+}
@@ -0,0 +1,91 @@
+package com.futurepress.visiblescroll;
+
+import javax.annotation.Nullable;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Keeps the first visible child of the content view at the same distance from the start of the
+ * viewport across layout passes.
+ *
+ * <p>The anchor is recorded while the content is settled, and after a layout pass the scroll is
+ * corrected by however far the anchor moved. Inserting, removing or resizing any number of
+ * children before it then leaves the visible content in place, and changes after it need no
+ * correction at all. The child following the anchor is recorded as well, so removing the anchor
+ * itself still has something to hold on to.
+ *
+ * <p>Offsets are in content coordinates: the scroll offset minus the content view's start.
+ */
+final class ScrollAnchor {
+
+  private final ScrollAxis mAxis;
+  private final ChildEdgeIndex mChildEdgeIndex;
+
+  private int mMinIndex = 0;
+  private @Nullable View mAnchorView;
+  private int mAnchorOffset = 0;
+  private @Nullable View mFallbackView;
+  private int mFallbackOffset = 0;
+
+  ScrollAnchor(ScrollAxis axis, ChildEdgeIndex childEdgeIndex) {
+    mAxis = axis;
+    mChildEdgeIndex = childEdgeIndex;
+  }
+
+  /**
+   * Children before {@code minIndex} are never used as the anchor, for content such as headers
+   * that should scroll away instead of being held in place.
+   */
+  public void setMinIndex(int minIndex) {
+    mMinIndex = Math.max(minIndex, 0);
+  }
+
+  public void clear() {
+    mAnchorView = null;
+    mFallbackView = null;
+  }
+
+  public void record(int viewportStart) {
+    int index = mChildEdgeIndex.firstEndingAfter(viewportStart, mMinIndex);
+    if (index == -1) {
+      clear();
+      return;
+    }
+    mAnchorView = mChildEdgeIndex.getView(index);
+    mAnchorOffset = mChildEdgeIndex.getStart(index) - viewportStart;
+    if (index + 1 < mChildEdgeIndex.size()) {
+      mFallbackView = mChildEdgeIndex.getView(index + 1);
+      mFallbackOffset = mChildEdgeIndex.getStart(index + 1) - viewportStart;
+    } else {
+      mFallbackView = null;
+    }
+  }
+
+  /**
+   * Keeps the recording valid across a scroll by {@code delta} made while the content is not
+   * settled, where the children can't be recorded again.
+   */
+  public void shift(int delta) {
+    mAnchorOffset -= delta;
+    mFallbackOffset -= delta;
+  }
+
+  /**
+   * @return how far the scroll has to move for the anchor to be back at its recorded offset from
+   *     {@code viewportStart}, or 0 if neither recorded child is still in {@code contentView}.
+   */
+  public int getCorrection(ViewGroup contentView, int viewportStart) {
+    if (isChildOf(mAnchorView, contentView)) {
+      return mAxis.getStart(mAnchorView) - viewportStart - mAnchorOffset;
+    }
+    if (isChildOf(mFallbackView, contentView)) {
+      return mAxis.getStart(mFallbackView) - viewportStart - mFallbackOffset;
+    }
+    return 0;
+  }
+
+  private static boolean isChildOf(@Nullable View child, ViewGroup parent) {
+    return child != null && child.getParent() == parent;
+  }
+}
@@ -0,0 +1,172 @@
+package com.futurepress.visiblescroll;
+
+import android.graphics.Rect;
+import android.view.View;
+
+/**
+ * Positions along one scroll axis, so that code shared by {@link FPVisibleScrollView} and
+ * {@link FPHorizontalVisibleScrollView} is written once instead of once per orientation.
+ *
+ * <p>There are exactly two implementations and each {@link VisibleScrollEngine} holds one of them
+ * in a final field, so call sites stay at most bimorphic and are inlined by the JIT.
+ */
+abstract class ScrollAxis {
+
+  static final ScrollAxis VERTICAL = new ScrollAxis() {
+    @Override
+    public int along(int x, int y) {
+      return y;
+    }
+
+    @Override
+    public int getStart(View view) {
+      return view.getTop();
+    }
+
+    @Override
+    public int getEnd(View view) {
+      return view.getBottom();
+    }
+
+    @Override
+    public int getScroll(View view) {
+      return view.getScrollY();
+    }
+
+    @Override
+    public void scrollTo(View view, int offset) {
+      view.scrollTo(view.getScrollX(), offset);
+    }
+
+    @Override
+    public int getViewportSize(View view) {
+      return view.getHeight();
+    }
+
+    @Override
+    public void setTranslation(View view, float translation) {
+      view.setTranslationY(translation);
+    }
+
+    @Override
+    public int getEndPadding(View view) {
+      return view.getPaddingBottom();
+    }
+
+    @Override
+    public int getStart(Rect rect) {
+      return rect.top;
+    }
+
+    @Override
+    public int getEnd(Rect rect) {
+      return rect.bottom;
+    }
+
+    @Override
+    public void extendStart(Rect rect, int distance) {
+      rect.top -= distance;
+    }
+
+    @Override
+    public void extendEnd(Rect rect, int distance) {
+      rect.bottom += distance;
+    }
+  };
+
+  static final ScrollAxis HORIZONTAL = new ScrollAxis() {
+    @Override
+    public int along(int x, int y) {
+      return x;
+    }
+
+    @Override
+    public int getStart(View view) {
+      return view.getLeft();
+    }
+
+    @Override
+    public int getEnd(View view) {
+      return view.getRight();
+    }
+
+    @Override
+    public int getScroll(View view) {
+      return view.getScrollX();
+    }
+
+    @Override
+    public void scrollTo(View view, int offset) {
+      view.scrollTo(offset, view.getScrollY());
+    }
+
+    @Override
+    public int getViewportSize(View view) {
+      return view.getWidth();
+    }
+
+    @Override
+    public void setTranslation(View view, float translation) {
+      view.setTranslationX(translation);
+    }
+
+    @Override
+    public int getEndPadding(View view) {
+      return view.getPaddingRight();
+    }
+
+    @Override
+    public int getStart(Rect rect) {
+      return rect.left;
+    }
+
+    @Override
+    public int getEnd(Rect rect) {
+      return rect.right;
+    }
+
+    @Override
+    public void extendStart(Rect rect, int distance) {
+      rect.left -= distance;
+    }
+
+    @Override
+    public void extendEnd(Rect rect, int distance) {
+      rect.right += distance;
+    }
+  };
+
+  /**
+   * @return whichever of {@code x} and {@code y} lies along this axis.
+   */
+  public abstract int along(int x, int y);
+
+  public abstract int getStart(View view);
+
+  public abstract int getEnd(View view);
+
+  public abstract int getScroll(View view);
+
+  /**
+   * Scrolls {@code view} to {@code offset} along this axis, keeping the other axis unchanged.
+   */
+  public abstract void scrollTo(View view, int offset);
+
+  public abstract int getViewportSize(View view);
+
+  public abstract void setTranslation(View view, float translation);
+
+  public abstract int getEndPadding(View view);
+
+  public abstract int getStart(Rect rect);
+
+  public abstract int getEnd(Rect rect);
+
+  public abstract void extendStart(Rect rect, int distance);
+
+  public abstract void extendEnd(Rect rect, int distance);
+
+  public int getSize(View view) {
+    return getEnd(view) - getStart(view);
+  }
+}
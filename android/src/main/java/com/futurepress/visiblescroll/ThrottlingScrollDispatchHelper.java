@@ -0,0 +1,176 @@
+package com.futurepress.visiblescroll;
+
+import javax.annotation.Nullable;
+
+import java.lang.reflect.Field;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.ViewGroup;
+
+import com.facebook.react.common.ReactConstants;
+import com.facebook.react.views.scroll.OnScrollDispatchHelper;
+import com.facebook.react.views.scroll.ReactScrollViewHelper;
+
+/**
+ * {@link OnScrollDispatchHelper} that enforces a minimum interval and a minimum distance between
+ * scroll events. Suppressed changes are coalesced: once the interval has passed, a single trailing
+ * event carrying the latest offset is sent, so the final position always reaches JS after the
+ * scroll goes idle.
+ *
+ * <p>The stock scroll views create their helper privately, so it is swapped in with reflection.
+ * If that fails, the stock helper stays in place and events are sent unthrottled.
+ */
+public class ThrottlingScrollDispatchHelper extends OnScrollDispatchHelper {
+
+  private static final String HELPER_FIELD = "mOnScrollDispatchHelper";
+  private static final long IDLE_DELAY_MS = 50;
+
+  // Once installing failed, the field is the same for every view, so it isn't tried again.
+  private static boolean sInstallFailed = false;
+
+  private final ViewGroup mScrollView;
+
+  private int mThrottleMs = 0;
+  private int mThrottleDistance = 0;
+
+  private long mLastEmitTime = 0;
+  private int mLastEmitX = 0;
+  private int mLastEmitY = 0;
+  private boolean mPending = false;
+  private boolean mSuppressed = false;
+  private @Nullable VisibleScrollMetrics mMetrics;
+
+  private final Runnable mTrailingEmit = new Runnable() {
+    @Override
+    public void run() {
+      if (mPending) {
+        emitLatest();
+      }
+    }
+  };
+
+  /**
+   * Replaces the private dispatch helper declared by {@code scrollViewClass}.
+   *
+   * @return the installed helper, or null if the stock field could not be replaced, in which case
+   *     the stock helper sends events unthrottled. The first failure is logged as an error.
+   */
+  public static @Nullable ThrottlingScrollDispatchHelper install(
+      ViewGroup scrollView,
+      Class<?> scrollViewClass) {
+    if (sInstallFailed) {
+      return null;
+    }
+    try {
+      Field helperField = scrollViewClass.getDeclaredField(HELPER_FIELD);
+      helperField.setAccessible(true);
+      ThrottlingScrollDispatchHelper helper = new ThrottlingScrollDispatchHelper(scrollView);
+      helperField.set(scrollView, helper);
+      return helper;
+    } catch (NoSuchFieldException
+        | IllegalAccessException
+        | IllegalArgumentException
+        | SecurityException e) {
+      sInstallFailed = true;
+      Log.e(
+          ReactConstants.TAG,
+          "Failed to replace " + scrollViewClass.getSimpleName() + "." + HELPER_FIELD
+              + ", scrollEventThrottle and scrollEventThrottleDistance are ignored",
+          e);
+      return null;
+    }
+  }
+
+  private ThrottlingScrollDispatchHelper(ViewGroup scrollView) {
+    mScrollView = scrollView;
+  }
+
+  public void setMetrics(@Nullable VisibleScrollMetrics metrics) {
+    mMetrics = metrics;
+  }
+
+  public void setThrottle(int throttleMs) {
+    mThrottleMs = Math.max(throttleMs, 0);
+  }
+
+  public void setThrottleDistance(int throttleDistance) {
+    mThrottleDistance = Math.max(throttleDistance, 0);
+  }
+
+  /**
+   * @return whether the last scroll change was suppressed. The stock view skips its clipping
+   *     update along with the event, so the caller has to do it instead.
+   */
+  public boolean consumeSuppressed() {
+    boolean suppressed = mSuppressed;
+    mSuppressed = false;
+    return suppressed;
+  }
+
+  /**
+   * Sends the coalesced event now if one is waiting.
+   */
+  public void flush() {
+    if (mPending) {
+      mScrollView.removeCallbacks(mTrailingEmit);
+      emitLatest();
+    }
+  }
+
+  public void cancel() {
+    mScrollView.removeCallbacks(mTrailingEmit);
+    mPending = false;
+  }
+
+  @Override
+  public boolean onScrollChanged(int x, int y) {
+    if (!super.onScrollChanged(x, y)) {
+      return false;
+    }
+    if (mThrottleMs == 0 && mThrottleDistance == 0) {
+      if (mMetrics != null) {
+        mMetrics.eventsEmitted++;
+      }
+      return true;
+    }
+
+    long now = SystemClock.uptimeMillis();
+    long elapsed = now - mLastEmitTime;
+    int distance = Math.max(Math.abs(x - mLastEmitX), Math.abs(y - mLastEmitY));
+    if (elapsed >= mThrottleMs && distance >= mThrottleDistance) {
+      mScrollView.removeCallbacks(mTrailingEmit);
+      onEmit(now, x, y);
+      if (mMetrics != null) {
+        mMetrics.eventsEmitted++;
+      }
+      return true;
+    }
+
+    mSuppressed = true;
+    mPending = true;
+    if (mMetrics != null) {
+      mMetrics.eventsCoalesced++;
+    }
+    // Pushed back on every suppressed change, so it fires once the interval is over and the
+    // scroll has been still for a moment.
+    mScrollView.removeCallbacks(mTrailingEmit);
+    mScrollView.postDelayed(mTrailingEmit, Math.max(mThrottleMs - elapsed, IDLE_DELAY_MS));
+    return false;
+  }
+
+  private void emitLatest() {
+    onEmit(SystemClock.uptimeMillis(), mScrollView.getScrollX(), mScrollView.getScrollY());
+    ReactScrollViewHelper.emitScrollEvent(mScrollView);
+    if (mMetrics != null) {
+      mMetrics.eventsEmitted++;
+    }
+  }
+
+  private void onEmit(long time, int x, int y) {
+    mPending = false;
+    mLastEmitTime = time;
+    mLastEmitX = x;
+    mLastEmitY = y;
+  }
+}
@@ -0,0 +1,95 @@
+package com.futurepress.visiblescroll;
+
+import android.support.v4.util.Pools;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.uimanager.events.Event;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
+
+/**
+ * Sent when the range of content children intersecting the viewport changes. Only the indices
+ * that entered and exited the range are sent, the previous and new ranges are kept as four ints
+ * until the event is serialized.
+ */
+public class VisibleItemsChangedEvent extends Event<VisibleItemsChangedEvent> {
+
+  private static final Pools.SynchronizedPool<VisibleItemsChangedEvent> EVENTS_POOL =
+      new Pools.SynchronizedPool<>(3);
+
+  private int mOldFirst;
+  private int mOldLast;
+  private int mFirst;
+  private int mLast;
+
+  public static VisibleItemsChangedEvent obtain(
+      int viewTag,
+      int oldFirst,
+      int oldLast,
+      int first,
+      int last) {
+    VisibleItemsChangedEvent event = EVENTS_POOL.acquire();
+    if (event == null) {
+      event = new VisibleItemsChangedEvent();
+    }
+    event.init(viewTag, oldFirst, oldLast, first, last);
+    return event;
+  }
+
+  @Override
+  public void onDispose() {
+    EVENTS_POOL.release(this);
+  }
+
+  private VisibleItemsChangedEvent() {
+  }
+
+  private void init(int viewTag, int oldFirst, int oldLast, int first, int last) {
+    super.init(viewTag);
+    mOldFirst = oldFirst;
+    mOldLast = oldLast;
+    mFirst = first;
+    mLast = last;
+  }
+
+  @Override
+  public String getEventName() {
+    return VisibleScrollEventType.VISIBLE_ITEMS_CHANGED.getJSEventName();
+  }
+
+  @Override
+  public boolean canCoalesce() {
+    // Each event is a diff against the previous one, dropping any of them would lose indices.
+    return false;
+  }
+
+  @Override
+  public void dispatch(RCTEventEmitter rctEventEmitter) {
+    rctEventEmitter.receiveEvent(getViewTag(), getEventName(), serializeEventData());
+  }
+
+  private WritableMap serializeEventData() {
+    WritableMap event = Arguments.createMap();
+    event.putArray("entered", diff(mFirst, mLast, mOldFirst, mOldLast));
+    event.putArray("exited", diff(mOldFirst, mOldLast, mFirst, mLast));
+    return event;
+  }
+
+  /**
+   * @return the indices in [first, last] that are not in [otherFirst, otherLast]. -1 marks an
+   *     empty range.
+   */
+  private static WritableArray diff(int first, int last, int otherFirst, int otherLast) {
+    WritableArray indices = Arguments.createArray();
+    if (first == -1) {
+      return indices;
+    }
+    for (int i = first; i <= last; i++) {
+      if (otherFirst == -1 || i < otherFirst || i > otherLast) {
+        indices.pushInt(i);
+      }
+    }
+    return indices;
+  }
+}
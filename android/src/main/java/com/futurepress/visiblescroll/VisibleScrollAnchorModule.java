@@ -0,0 +1,75 @@
+package com.futurepress.visiblescroll;
+
+import android.view.View;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.uimanager.IllegalViewOperationException;
+import com.facebook.react.uimanager.NativeViewHierarchyManager;
+import com.facebook.react.uimanager.PixelUtil;
+import com.facebook.react.uimanager.UIBlock;
+import com.facebook.react.uimanager.UIManagerModule;
+
+/**
+ * Reads the current anchor of a visible scroll view, the first visible child's index and the
+ * offset into it, so js can save it and pass it back as the initialAnchor prop of a new view.
+ * Read after pending view updates, on the UI thread.
+ */
+public class VisibleScrollAnchorModule extends ReactContextBaseJavaModule {
+
+  protected static final String NAME = "FPVisibleScrollAnchor";
+
+  public VisibleScrollAnchorModule(ReactApplicationContext reactContext) {
+    super(reactContext);
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  /**
+   * Resolves with {@code {index, offset}}, the offset in dip, or null if the view has no
+   * children.
+   */
+  @ReactMethod
+  public void getAnchor(final int viewTag, final Promise promise) {
+    UIManagerModule uiManager = getReactApplicationContext().getNativeModule(UIManagerModule.class);
+    uiManager.addUIBlock(new UIBlock() {
+      @Override
+      public void execute(NativeViewHierarchyManager nativeViewHierarchyManager) {
+        View view;
+        try {
+          view = nativeViewHierarchyManager.resolveView(viewTag);
+        } catch (IllegalViewOperationException e) {
+          promise.reject("E_NO_VIEW", e.getMessage());
+          return;
+        }
+        int index;
+        int offset;
+        if (view instanceof FPVisibleScrollView) {
+          index = ((FPVisibleScrollView) view).getAnchorIndex();
+          offset = ((FPVisibleScrollView) view).getAnchorOffset();
+        } else if (view instanceof FPHorizontalVisibleScrollView) {
+          index = ((FPHorizontalVisibleScrollView) view).getAnchorIndex();
+          offset = ((FPHorizontalVisibleScrollView) view).getAnchorOffset();
+        } else {
+          promise.reject("E_NOT_VISIBLE_SCROLL_VIEW", "View " + viewTag + " is not a scroll view");
+          return;
+        }
+        if (index == -1) {
+          promise.resolve(null);
+          return;
+        }
+        WritableMap anchor = Arguments.createMap();
+        anchor.putInt("index", index);
+        anchor.putDouble("offset", PixelUtil.toDIPFromPixel(offset));
+        promise.resolve(anchor);
+      }
+    });
+  }
+}
@@ -0,0 +1,1549 @@
+package com.futurepress.visiblescroll;
+
+import javax.annotation.Nullable;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+
+import android.graphics.Rect;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Choreographer;
+import android.view.ViewTreeObserver;
+import android.widget.OverScroller;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.common.ReactConstants;
+import com.facebook.react.uimanager.ReactClippingViewGroup;
+import com.facebook.react.uimanager.PixelUtil;
+import com.facebook.react.uimanager.ReactClippingViewGroupHelper;
+import com.facebook.react.uimanager.UIManagerModule;
+import com.facebook.react.uimanager.events.EventDispatcher;
+import com.facebook.react.views.scroll.FpsListener;
+import com.facebook.react.views.scroll.ReactScrollViewHelper;
+import com.facebook.react.views.view.ReactViewGroup;
+
+/**
+ * Anchoring, clipping and visibility logic shared by {@link FPVisibleScrollView} and
+ * {@link FPHorizontalVisibleScrollView}. Each view owns one engine, forwards the relevant
+ * callbacks to it and reads every position through the engine's {@link ScrollAxis}.
+ */
+final class VisibleScrollEngine {
+
+  /**
+   * Calls back into the scroll view for the parts of its behaviour the engine extends rather than
+   * replaces.
+   */
+  interface Host {
+
+    /**
+     * Runs the stock clipping pass, bypassing the view's override.
+     */
+    void updateClippingRectUnconditionally();
+
+    void smoothScrollTo(int offset);
+  }
+
+  private final ViewGroup mScrollView;
+  private final ScrollAxis mAxis;
+  private final Host mHost;
+  private final Class<?> mStockScrollViewClass;
+
+  private @Nullable ViewGroup mContentView;
+
+  // Set by layout changes of the content; the anchor is corrected once, right before the next
+  // draw, no matter how many children changed during the layout pass.
+  private boolean mAnchorCorrectionScheduled = false;
+  private boolean mPreDrawListenerRegistered = false;
+
+  private final ChildEdgeIndex mChildEdgeIndex;
+  private final ScrollAnchor mScrollAnchor;
+
+  // Batches: between beginBatch and endBatch, layout and hierarchy changes only mark the child
+  // edge index dirty, and the pre-draw pass and clipping wait. The batch is only over at the
+  // first draw after endBatch, since the layout of the batch's updates may still follow it.
+  private int mBatchDepth = 0;
+  private boolean mBatchEnding = false;
+
+  // Visible child range used by the last clipping pass. While it does not change, neither does
+  // the set of attached children, so the clipping pass can be skipped.
+  private final Rect mClippingRectHelper = new Rect();
+  private int mClippedFirstIndex = -2;
+  private int mClippedLastIndex = -2;
+  private int mClippedGeneration = -1;
+  private boolean mClippingElidable = false;
+  private boolean mUpdatingClippingRect = false;
+  // Set by layout and hierarchy changes of the content. The clipping pass after them can't be
+  // skipped: the content view checks children it lays out against the clipping rect it stored
+  // in the last pass, which is stale if passes were skipped while scrolling since.
+  private boolean mContentChanged = false;
+
+  // Fling lookahead: while flinging, the clipping rect reaches this many milliseconds of travel
+  // further in the direction of the fling, capped at a distance, so children are attached before
+  // they scroll in. It shrinks back as the fling slows down.
+  private int mFlingLookaheadTime = 0;
+  private int mFlingLookaheadMaxDistance = 0;
+  private int mFlingLookahead = 0;
+  private int mFlingDirection = 0;
+  private @Nullable OverScroller mScroller;
+  private boolean mTriedToGetScroller = false;
+
+  // Motion tracking: instead of the stock runnable that polls until a frame passes without a
+  // scroll event, one Choreographer callback watches the scroller, and it is only registered
+  // while the scroller is running. It ends momentum, frame timing and the fling lookahead.
+  private final @Nullable FpsListener mFpsListener;
+  private @Nullable String mScrollPerfTag;
+  private boolean mFpsListenerEnabled = false;
+  private boolean mSendMomentumEvents = false;
+  private boolean mDragging = false;
+  private boolean mFlinging = false;
+  private boolean mFlingToPage = false;
+  private boolean mMotionCallbackPosted = false;
+  private int mLastMotionScroll = 0;
+
+  // A release too slow to fling can still start the scroller: the stock post-touch runnable pages
+  // once a 20ms interval passes without scrolling, and a snap starts right away. For this many
+  // frames after the release, a running scroller starts momentum as a fling would.
+  private static final int POST_TOUCH_FRAMES = 6;
+  private int mPostTouchFrames = 0;
+
+  private final Choreographer.FrameCallback
+          mMotionFrameCallback = new Choreographer.FrameCallback() {
+    @Override
+    public void doFrame(long frameTimeNanos) {
+      mMotionCallbackPosted = false;
+      if (mPostTouchFrames > 0) {
+        mPostTouchFrames--;
+        OverScroller scroller = getScroller();
+        if (scroller != null && !scroller.isFinished()) {
+          mPostTouchFrames = 0;
+          // A scroll to a page or a snapped child, never a free fling.
+          mFlingToPage = true;
+          beginMomentum();
+        } else if (mPostTouchFrames > 0) {
+          trackMotion();
+          return;
+        }
+      }
+      if (isMotionFinished()) {
+        onMotionEnd();
+      } else {
+        trackMotion();
+      }
+    }
+  };
+
+  // Snapping: flings come to rest on the start edge of a content child, picked from the child
+  // geometry where the fling is predicted to end. The target is kept as the child itself, so an
+  // anchor correction during the snap moves the target along with the content.
+  private boolean mSnapToChildren = false;
+  private @Nullable OverScroller mSnapPredictor;
+  private @Nullable View mSnapChild;
+  private int mSnapTarget = 0;
+
+  private final IdleWorkScheduler mIdleWorkScheduler;
+  private final IdleWorkScheduler.Task mUpdateClippingRectTask = new IdleWorkScheduler.Task() {
+    @Override
+    public void run() {
+      updateClippingRect();
+    }
+  };
+
+  private boolean mSendVisibleItemsEvents = false;
+  private int mVisibleFirstIndex = -1;
+  private int mVisibleLastIndex = -1;
+
+  private boolean mSendMaterializeRangeEvents = false;
+  // Negative until set, which means one viewport.
+  private int mMaterializeDistance = -1;
+  private int mMaterializeFirstIndex = -1;
+  private int mMaterializeLastIndex = -1;
+
+  // Recycling: children further than this from the viewport are handed back to JS, which renders
+  // a placeholder of their measured size in their place so that their native views are freed.
+  // The first range sent releases every child outside it, later ones the children leaving it.
+  private int mRecycleDistance = 0;
+  private boolean mRecycleRangeSent = false;
+  private int mRecycleFirstIndex = -1;
+  private int mRecycleLastIndex = -1;
+
+  // Sorted content child indices of sticky headers. Only the last header starting before the
+  // viewport is translated, so only it and the previously translated one need updating.
+  private int[] mStickyHeaderIndices = new int[0];
+  private @Nullable View mStuckHeader;
+
+  // Content size changes since the last draw, reported together once the frame is corrected.
+  private boolean mSendContentSizeEvents = false;
+  private boolean mContentSizeChanged = false;
+  private int mSentContentWidth = -1;
+  private int mSentContentHeight = -1;
+
+  // Each edge fires its prefetch event at most once per content size.
+  private int mPrefetchDistance = 0;
+  private float mPrefetchDistanceScreens = 0;
+  private boolean mPrefetchStartArmed = true;
+  private boolean mPrefetchEndArmed = true;
+
+  // Trimming: like prefetch, each edge requests a drop at most once per content size. Dropping
+  // children before the viewport needs no special handling, since it is an ordinary layout
+  // change before the anchor and is corrected like any other.
+  private int mTrimDistance = 0;
+  private boolean mTrimStartArmed = true;
+  private boolean mTrimEndArmed = true;
+
+  // An initial anchor waiting for its child to be laid out: the child's index and how far past
+  // its start the viewport starts.
+  private int mInitialAnchorIndex = -1;
+  private int mInitialAnchorOffset = 0;
+
+  // Scroll commands received since the last draw collapse into the latest one, which runs once
+  // in the pre-draw pass, after the anchor correction.
+  private static final int COMMAND_NONE = 0;
+  private static final int COMMAND_SCROLL_TO = 1;
+  private static final int COMMAND_SCROLL_TO_END = 2;
+  private static final int COMMAND_SCROLL_TO_INDEX = 3;
+  private int mPendingCommand = COMMAND_NONE;
+  private int mPendingCommandOffset = 0;
+  private int mPendingCommandIndex = 0;
+  private boolean mPendingCommandAnimated = false;
+
+  private @Nullable EventDispatcher mEventDispatcher;
+  private final @Nullable VisibleScrollMetricsRegistry mMetricsRegistry;
+  // Only set while the view has a scrollPerfTag.
+  private @Nullable VisibleScrollMetrics mMetrics;
+  private @Nullable ThrottlingScrollDispatchHelper mScrollDispatchHelper;
+  private boolean mTriedToInstallScrollDispatchHelper = false;
+
+  // Set through maintainVisibleContentPosition, -1 when scrolling back to the start is off.
+  private int mAutoscrollToTopThreshold = -1;
+  private int mLastAnchorError = 0;
+
+  /**
+   * @param stockScrollViewClass the React Native class {@code scrollView} extends, which declares
+   *     the scroll dispatch helper that throttling replaces.
+   */
+  VisibleScrollEngine(
+      ViewGroup scrollView,
+      ScrollAxis axis,
+      Class<?> stockScrollViewClass,
+      @Nullable FpsListener fpsListener,
+      @Nullable VisibleScrollMetricsRegistry metricsRegistry,
+      Host host) {
+    mScrollView = scrollView;
+    mFpsListener = fpsListener;
+    mAxis = axis;
+    mStockScrollViewClass = stockScrollViewClass;
+    mMetricsRegistry = metricsRegistry;
+    mHost = host;
+    mChildEdgeIndex = new ChildEdgeIndex(axis);
+    mScrollAnchor = new ScrollAnchor(axis, mChildEdgeIndex);
+    mIdleWorkScheduler = new IdleWorkScheduler(scrollView);
+  }
+
+  private final View.OnLayoutChangeListener
+          mContentLayoutChangeListener = new View.OnLayoutChangeListener() {
+
+    @Override
+    public void onLayoutChange(
+            View v,
+            int left,
+            int top,
+            int right,
+            int bottom,
+            int oldLeft,
+            int oldTop,
+            int oldRight,
+            int oldBottom) {
+
+      long startNanos = mMetrics != null ? System.nanoTime() : 0;
+      mChildEdgeIndex.onContentLayout();
+
+      int size = mAxis.along(right - left, bottom - top);
+      int oldSize = mAxis.along(oldRight - oldLeft, oldBottom - oldTop);
+      if (size != oldSize && isPrefetchEnabled()) {
+        mPrefetchStartArmed = true;
+        mPrefetchEndArmed = true;
+      }
+      if (size != oldSize) {
+        mTrimStartArmed = true;
+        mTrimEndArmed = true;
+      }
+      if (right - left != oldRight - oldLeft || bottom - top != oldBottom - oldTop) {
+        mContentSizeChanged = true;
+      }
+
+      mContentChanged = true;
+      scheduleAnchorCorrection();
+      if (mMetrics != null) {
+        mMetrics.layoutListenerNanos += System.nanoTime() - startNanos;
+      }
+    }
+  };
+
+  private final View.OnLayoutChangeListener
+          mChildLayoutChangeListener = new View.OnLayoutChangeListener() {
+
+    @Override
+    public void onLayoutChange(
+            View v,
+            int left,
+            int top,
+            int right,
+            int bottom,
+            int oldLeft,
+            int oldTop,
+            int oldRight,
+            int oldBottom) {
+
+      long startNanos = mMetrics != null ? System.nanoTime() : 0;
+      if (isBatching()) {
+        mChildEdgeIndex.invalidate();
+      } else {
+        mChildEdgeIndex.onChildLayout(v, mAxis.along(left, top), mAxis.along(right, bottom));
+      }
+      mContentChanged = true;
+      scheduleAnchorCorrection();
+      if (mMetrics != null) {
+        mMetrics.layoutListenerNanos += System.nanoTime() - startNanos;
+      }
+    }
+  };
+
+  private final ViewTreeObserver.OnPreDrawListener
+          mAnchorPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+
+    @Override
+    public boolean onPreDraw() {
+      if (!mAnchorCorrectionScheduled || mBatchDepth > 0) {
+        return true;
+      }
+      mAnchorCorrectionScheduled = false;
+      mBatchEnding = false;
+      long startNanos = mMetrics != null ? System.nanoTime() : 0;
+      applyAnchorCorrection();
+      if (mContentChanged) {
+        mContentChanged = false;
+        mClippingElidable = false;
+        updateClippingRect();
+      }
+      updateSnapTarget();
+      applyInitialAnchor();
+      updateStickyHeaders();
+      flushPendingCommand();
+      updateVisibleItems();
+      updateMaterializeRange();
+      updateRecycleRange();
+      checkPrefetchWindow();
+      checkTrimWindow();
+      dispatchContentSizeChanged();
+      if (mMetrics != null) {
+        mMetrics.layoutPasses++;
+        mMetrics.layoutListenerNanos += System.nanoTime() - startNanos;
+      }
+      return true;
+    }
+  };
+
+  private final ViewGroup.OnHierarchyChangeListener
+          mChildHierarchyChangeListener = new ViewGroup.OnHierarchyChangeListener() {
+
+    @Override
+    public void onChildViewAdded(View parent, View child) {
+      child.addOnLayoutChangeListener(mChildLayoutChangeListener);
+      // Children attached by a clipping pass were already part of the content.
+      if (mUpdatingClippingRect) {
+        return;
+      }
+      mContentChanged = true;
+      if (isBatching()) {
+        mChildEdgeIndex.invalidate();
+      } else {
+        mChildEdgeIndex.onChildAdded(child);
+      }
+    }
+
+    @Override
+    public void onChildViewRemoved(View parent, View child) {
+      child.removeOnLayoutChangeListener(mChildLayoutChangeListener);
+      if (mUpdatingClippingRect) {
+        return;
+      }
+      mContentChanged = true;
+      if (isBatching()) {
+        mChildEdgeIndex.invalidate();
+      } else {
+        mChildEdgeIndex.onChildRemoved(child);
+      }
+      // Removing the last child moves nothing else, so no other layout listener would run.
+      scheduleAnchorCorrection();
+    }
+  };
+
+  /**
+   * The pre-draw listener stays registered while attached and is gated by a flag, since adding
+   * and removing it on every layout pass copies the observer's listener list.
+   */
+  private void scheduleAnchorCorrection() {
+    if (mAnchorCorrectionScheduled) {
+      return;
+    }
+    mAnchorCorrectionScheduled = true;
+    mScrollView.invalidate();
+  }
+
+  /**
+   * Moves the scroll by however far the anchor child moved during the layout pass, as a single
+   * scroll. The pass runs the clipping update after it.
+   */
+  private void applyAnchorCorrection() {
+    if (mContentView == null) {
+      return;
+    }
+    int scroll = mAxis.getScroll(mScrollView);
+    int delta = mScrollAnchor.getCorrection(mContentView, getViewportStart());
+    mLastAnchorError = 0;
+    if (delta != 0) {
+      moveScroll(scroll, delta);
+      if (mMetrics != null) {
+        mMetrics.anchorCorrections++;
+        mMetrics.anchorCorrectionDistance += Math.abs(delta);
+      }
+      // Measured from the scroll rather than the anchor, which the scroll just re-recorded. The
+      // scroll only lands short of the target where it is clamped to the content bounds.
+      mLastAnchorError = scroll + delta - mAxis.getScroll(mScrollView);
+      if (mAutoscrollToTopThreshold >= 0 && scroll <= mAutoscrollToTopThreshold) {
+        mHost.smoothScrollTo(0);
+      }
+    }
+    mScrollAnchor.record(getViewportStart());
+  }
+
+  /**
+   * Moves the scroll by {@code delta}. While a fling or smooth scroll runs, the scroll view copies
+   * the scroller's position on every frame and would undo a plain scroll, so the scroller is
+   * restarted from the moved position instead: a free fling with its current velocity, a scroll
+   * to a target with its remaining distance.
+   */
+  private void moveScroll(int scroll, int delta) {
+    OverScroller scroller = getScroller();
+    if (scroller == null || scroller.isFinished()) {
+      mAxis.scrollTo(mScrollView, scroll + delta);
+      return;
+    }
+    int remaining = mAxis.along(
+        scroller.getFinalX() - scroller.getCurrX(),
+        scroller.getFinalY() - scroller.getCurrY());
+    float velocity = scroller.getCurrVelocity();
+    scroller.forceFinished(true);
+    mAxis.scrollTo(mScrollView, scroll + delta);
+    if (remaining == 0) {
+      return;
+    }
+    int x = mScrollView.getScrollX();
+    int y = mScrollView.getScrollY();
+    if (isFreeFling()) {
+      int signedVelocity = Math.round(remaining > 0 ? velocity : -velocity);
+      int maxScroll = getMaxScroll();
+      scroller.fling(
+          x,
+          y,
+          mAxis.along(signedVelocity, 0),
+          mAxis.along(0, signedVelocity),
+          mAxis.along(0, x),
+          mAxis.along(maxScroll, x),
+          mAxis.along(y, 0),
+          mAxis.along(y, maxScroll));
+    } else {
+      scroller.startScroll(x, y, mAxis.along(remaining, 0), mAxis.along(0, remaining));
+    }
+    mScrollView.postInvalidateOnAnimation();
+  }
+
+  /**
+   * Starts a batch of content changes. Batches nest, and only the outermost one takes effect.
+   */
+  public void beginBatch() {
+    mBatchDepth++;
+  }
+
+  /**
+   * Ends a batch. The anchor correction, clipping pass and content size event for everything that
+   * changed during it run once, right before the next draw.
+   */
+  public void endBatch() {
+    if (mBatchDepth == 0) {
+      return;
+    }
+    mBatchDepth--;
+    if (mBatchDepth > 0) {
+      return;
+    }
+    if (mPreDrawListenerRegistered) {
+      mBatchEnding = true;
+      // A correction scheduled during the batch is still pending, but the frames it invalidated
+      // are gone, so the next draw has to be requested again.
+      mAnchorCorrectionScheduled = true;
+      mScrollView.invalidate();
+    } else {
+      updateClippingRect();
+    }
+  }
+
+  private boolean isBatching() {
+    return mBatchDepth > 0 || mBatchEnding;
+  }
+
+  /**
+   * @return the scroll offset in content coordinates.
+   */
+  private int getViewportStart() {
+    return mAxis.getScroll(mScrollView) - mAxis.getStart(mContentView);
+  }
+
+  /**
+   * The first visible child is always kept in place; this only configures which children may be
+   * the anchor and whether to scroll back to the start when content is added near it.
+   */
+  public void setMaintainVisibleContentPosition(
+      boolean enabled,
+      int minIndexForVisible,
+      int autoscrollToTopThreshold) {
+    mScrollAnchor.setMinIndex(enabled ? minIndexForVisible : 0);
+    mAutoscrollToTopThreshold = enabled ? autoscrollToTopThreshold : -1;
+    if (mContentView != null && !mAnchorCorrectionScheduled) {
+      mScrollAnchor.record(getViewportStart());
+    }
+  }
+
+  public int getLastAnchorError() {
+    return mLastAnchorError;
+  }
+
+  /**
+   * Runs the stock clipping pass unless the range of children it would attach is the same as last
+   * time.
+   */
+  public void updateClippingRect() {
+    if (!((ReactClippingViewGroup) mScrollView).getRemoveClippedSubviews() ||
+        mContentView == null ||
+        isBatching()) {
+      return;
+    }
+    ReactClippingViewGroupHelper.calculateClippingRect(mScrollView, mClippingRectHelper);
+    extendClippingRect(mClippingRectHelper);
+    int first = -1;
+    int last = -1;
+    if (!mClippingRectHelper.isEmpty()) {
+      int offset = mAxis.getStart(mContentView);
+      first = mChildEdgeIndex.firstEndingAfter(mAxis.getStart(mClippingRectHelper) - offset, 0);
+      last = mChildEdgeIndex.lastStartingBefore(mAxis.getEnd(mClippingRectHelper) - offset);
+    }
+    int generation = mChildEdgeIndex.getGeneration();
+    if (mClippingElidable &&
+        first == mClippedFirstIndex &&
+        last == mClippedLastIndex &&
+        generation == mClippedGeneration) {
+      if (mMetrics != null) {
+        mMetrics.clippingUpdatesSkipped++;
+      }
+      return;
+    }
+    mClippedFirstIndex = first;
+    mClippedLastIndex = last;
+    mClippedGeneration = generation;
+    mClippingElidable = !hasNestedClippingChild(first, last);
+
+    if (mMetrics != null) {
+      mMetrics.clippingUpdates++;
+    }
+    mUpdatingClippingRect = true;
+    try {
+      mHost.updateClippingRectUnconditionally();
+    } finally {
+      mUpdatingClippingRect = false;
+    }
+  }
+
+  public void extendClippingRect(Rect clippingRect) {
+    if (clippingRect.isEmpty()) {
+      return;
+    }
+    if (mFlingLookahead > 0) {
+      if (mFlingDirection > 0) {
+        mAxis.extendEnd(clippingRect, mFlingLookahead);
+      } else {
+        mAxis.extendStart(clippingRect, mFlingLookahead);
+      }
+    }
+  }
+
+  /**
+   * Sets how many milliseconds of fling travel the clipping rect covers ahead of the viewport, 0
+   * turns the lookahead off. It only has an effect while subview clipping is on.
+   */
+  public void setFlingLookaheadTime(int flingLookaheadTime) {
+    mFlingLookaheadTime = Math.max(flingLookaheadTime, 0);
+    if (mFlingLookaheadTime == 0 && mFlingLookahead != 0) {
+      mFlingLookahead = 0;
+      updateClippingRect();
+    }
+  }
+
+  /**
+   * Caps the fling lookahead at {@code flingLookaheadMaxDistance} pixels, 0 for no cap.
+   */
+  public void setFlingLookaheadMaxDistance(int flingLookaheadMaxDistance) {
+    mFlingLookaheadMaxDistance = Math.max(flingLookaheadMaxDistance, 0);
+  }
+
+  /**
+   * @return whether the lookahead changed, in which case the clipping rect is stale.
+   */
+  private boolean updateFlingLookahead(int scrollDelta) {
+    if (mFlingLookaheadTime == 0) {
+      return false;
+    }
+    OverScroller scroller = getScroller();
+    int lookahead = 0;
+    if (scroller != null && !scroller.isFinished() && scrollDelta != 0) {
+      lookahead = Math.round(scroller.getCurrVelocity() * mFlingLookaheadTime / 1000);
+      if (mFlingLookaheadMaxDistance > 0) {
+        lookahead = Math.min(lookahead, mFlingLookaheadMaxDistance);
+      }
+      mFlingDirection = scrollDelta > 0 ? 1 : -1;
+    }
+    if (lookahead > 0) {
+      // Also covers smooth scrolls, which run the scroller without a fling.
+      trackMotion();
+    }
+    if (lookahead == mFlingLookahead) {
+      return false;
+    }
+    mFlingLookahead = lookahead;
+    return true;
+  }
+
+  public void setSendMomentumEvents(boolean sendMomentumEvents) {
+    mSendMomentumEvents = sendMomentumEvents;
+  }
+
+  /**
+   * Called after the view started a fling.
+   *
+   * @param toPage whether paging turned the fling into a scroll to the next page
+   */
+  public void onFling(boolean toPage) {
+    mFlingToPage = toPage;
+    mPostTouchFrames = 0;
+    beginMomentum();
+    mLastMotionScroll = Integer.MIN_VALUE;
+    trackMotion();
+  }
+
+  private void beginMomentum() {
+    if (!mFlinging) {
+      mFlinging = true;
+      if (mSendMomentumEvents) {
+        ReactScrollViewHelper.emitScrollMomentumBeginEvent(mScrollView);
+      }
+      updateFpsListener();
+    }
+  }
+
+  public void onDragStart() {
+    mDragging = true;
+    mPostTouchFrames = 0;
+    mSnapChild = null;
+    updateFpsListener();
+  }
+
+  /**
+   * Called once the view has handled the end of a touch, after any fling it started.
+   */
+  public void onDragEnd() {
+    boolean dragged = mDragging;
+    mDragging = false;
+    if (dragged && mSnapToChildren && mSnapChild == null) {
+      // Released too slowly to fling. A tap never started a drag and leaves the scroll alone.
+      snap(0);
+    }
+    if (!mFlinging) {
+      mPostTouchFrames = POST_TOUCH_FRAMES;
+      mLastMotionScroll = Integer.MIN_VALUE;
+      trackMotion();
+    }
+    updateFpsListener();
+  }
+
+  /**
+   * @return whether the scroller runs a fling that decelerates freely, rather than a scroll to a
+   *     page, a snapped child or a command's offset.
+   */
+  private boolean isFreeFling() {
+    return mFlinging && !mFlingToPage && mSnapChild == null;
+  }
+
+  private void trackMotion() {
+    if (!mMotionCallbackPosted) {
+      mMotionCallbackPosted = true;
+      Choreographer.getInstance().postFrameCallback(mMotionFrameCallback);
+    }
+  }
+
+  /**
+   * Without access to the scroller, motion has ended once a frame passes without the scroll
+   * offset changing.
+   */
+  private boolean isMotionFinished() {
+    OverScroller scroller = getScroller();
+    if (scroller != null) {
+      return scroller.isFinished();
+    }
+    int scroll = mAxis.getScroll(mScrollView);
+    boolean finished = scroll == mLastMotionScroll;
+    mLastMotionScroll = scroll;
+    return finished;
+  }
+
+  private void onMotionEnd() {
+    mSnapChild = null;
+    if (mFlingLookahead > 0) {
+      mFlingLookahead = 0;
+      // Nothing new comes into view, so detaching the children ahead can wait.
+      mIdleWorkScheduler.schedule(mUpdateClippingRectTask);
+    }
+    if (mFlinging) {
+      mFlinging = false;
+      mFlingToPage = false;
+      if (mSendMomentumEvents) {
+        flushScrollEvent();
+        ReactScrollViewHelper.emitScrollMomentumEndEvent(mScrollView);
+      }
+      updateFpsListener();
+    }
+  }
+
+  /**
+   * Frame timing runs while the view is dragged or flinging.
+   */
+  private void updateFpsListener() {
+    boolean enable = (mDragging || mFlinging) && mFpsListener != null && mScrollPerfTag != null;
+    if (enable == mFpsListenerEnabled) {
+      return;
+    }
+    mFpsListenerEnabled = enable;
+    if (enable) {
+      mFpsListener.enable(mScrollPerfTag);
+    } else {
+      mFpsListener.disable(mScrollPerfTag);
+    }
+  }
+
+  public void setSnapToChildren(boolean snapToChildren) {
+    mSnapToChildren = snapToChildren;
+    if (!snapToChildren) {
+      mSnapChild = null;
+    }
+  }
+
+  public boolean isSnappingToChildren() {
+    return mSnapToChildren;
+  }
+
+  /**
+   * Scrolls to the child start edge closest to where a fling with {@code velocity} would come to
+   * rest, and at least one child in the direction of the fling.
+   */
+  public void snap(int velocity) {
+    if (mContentView == null || mChildEdgeIndex.size() == 0) {
+      return;
+    }
+    int contentStart = mAxis.getStart(mContentView);
+    int scroll = mAxis.getScroll(mScrollView);
+    int maxScroll = getMaxScroll();
+    int resting = scroll;
+    if (velocity != 0) {
+      if (mSnapPredictor == null) {
+        mSnapPredictor = new OverScroller(mScrollView.getContext());
+      }
+      mSnapPredictor.fling(
+          mAxis.along(scroll, 0),
+          mAxis.along(0, scroll),
+          mAxis.along(velocity, 0),
+          mAxis.along(0, velocity),
+          0,
+          mAxis.along(maxScroll, 0),
+          0,
+          mAxis.along(0, maxScroll));
+      resting = mAxis.along(mSnapPredictor.getFinalX(), mSnapPredictor.getFinalY());
+      mSnapPredictor.forceFinished(true);
+    }
+
+    int count = mChildEdgeIndex.size();
+    int restingInContent = resting - contentStart;
+    int index = mChildEdgeIndex.firstEndingAfter(restingInContent, 0);
+    if (index == -1) {
+      index = count - 1;
+    } else if (index + 1 < count &&
+        mChildEdgeIndex.getEnd(index) - restingInContent <
+            restingInContent - mChildEdgeIndex.getStart(index)) {
+      index++;
+    }
+    int scrollInContent = scroll - contentStart;
+    if (velocity > 0) {
+      int next = mChildEdgeIndex.lastStartingBefore(scrollInContent + 1) + 1;
+      if (next < count) {
+        index = Math.max(index, next);
+      }
+    } else if (velocity < 0) {
+      int previous = mChildEdgeIndex.lastStartingBefore(scrollInContent);
+      if (previous >= 0) {
+        index = Math.min(index, previous);
+      }
+    }
+
+    mSnapChild = mChildEdgeIndex.getView(index);
+    mSnapTarget = getSnapTarget(mSnapChild);
+    mHost.smoothScrollTo(mSnapTarget);
+    mLastMotionScroll = Integer.MIN_VALUE;
+    trackMotion();
+  }
+
+  /**
+   * Re-aims a running snap whose child moved, without restarting it from a stale position.
+   */
+  private void updateSnapTarget() {
+    View snapChild = mSnapChild;
+    if (snapChild == null) {
+      return;
+    }
+    if (snapChild.getParent() != mContentView) {
+      mSnapChild = null;
+      return;
+    }
+    int target = getSnapTarget(snapChild);
+    if (target == mSnapTarget) {
+      return;
+    }
+    mSnapTarget = target;
+    int distance = target - mAxis.getScroll(mScrollView);
+    OverScroller scroller = getScroller();
+    if (scroller != null && !scroller.isFinished()) {
+      scroller.startScroll(
+          mScrollView.getScrollX(),
+          mScrollView.getScrollY(),
+          mAxis.along(distance, 0),
+          mAxis.along(0, distance));
+      mScrollView.postInvalidateOnAnimation();
+    } else {
+      mHost.smoothScrollTo(target);
+    }
+  }
+
+  private int getSnapTarget(View child) {
+    int target = mAxis.getStart(mContentView) + mAxis.getStart(child);
+    return Math.max(0, Math.min(target, getMaxScroll()));
+  }
+
+  private int getMaxScroll() {
+    return Math.max(
+        0,
+        mAxis.getEnd(mContentView) + mAxis.getEndPadding(mScrollView) -
+            mAxis.getViewportSize(mScrollView));
+  }
+
+  /**
+   * The framework scroll views keep their scroller private, so it is read with reflection from
+   * the class the stock React Native view extends.
+   */
+  private @Nullable OverScroller getScroller() {
+    if (!mTriedToGetScroller) {
+      mTriedToGetScroller = true;
+      try {
+        Field scrollerField = mStockScrollViewClass.getSuperclass().getDeclaredField("mScroller");
+        scrollerField.setAccessible(true);
+        mScroller = (OverScroller) scrollerField.get(mScrollView);
+      } catch (NoSuchFieldException | IllegalAccessException | ClassCastException e) {
+        Log.w(ReactConstants.TAG, "Failed to get the scroller, fling lookahead is disabled", e);
+      }
+    }
+    return mScroller;
+  }
+
+  /**
+   * Visible children that clip their own subviews need a clipping pass on every scroll, so
+   * skipping passes is only safe when there are none.
+   */
+  private boolean hasNestedClippingChild(int first, int last) {
+    if (first == -1) {
+      return false;
+    }
+    for (int i = first; i <= last; i++) {
+      View child = mChildEdgeIndex.getView(i);
+      if (child instanceof ReactClippingViewGroup &&
+          ((ReactClippingViewGroup) child).getRemoveClippedSubviews()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public void setSendVisibleItemsEvents(boolean sendVisibleItemsEvents) {
+    mSendVisibleItemsEvents = sendVisibleItemsEvents;
+    mVisibleFirstIndex = -1;
+    mVisibleLastIndex = -1;
+    if (sendVisibleItemsEvents) {
+      updateVisibleItems();
+    }
+  }
+
+  /**
+   * Emits {@link VisibleItemsChangedEvent} when the range of children intersecting the viewport
+   * differs from the last one sent.
+   */
+  private void updateVisibleItems() {
+    if (!mSendVisibleItemsEvents || mContentView == null) {
+      return;
+    }
+    int offset = getViewportStart();
+    int first = mChildEdgeIndex.firstEndingAfter(offset, 0);
+    int last = first == -1 ?
+        -1 : mChildEdgeIndex.lastStartingBefore(offset + mAxis.getViewportSize(mScrollView));
+    if (last < first) {
+      first = -1;
+      last = -1;
+    }
+    if (first == mVisibleFirstIndex && last == mVisibleLastIndex) {
+      return;
+    }
+    getEventDispatcher().dispatchEvent(VisibleItemsChangedEvent.obtain(
+        mScrollView.getId(),
+        mVisibleFirstIndex,
+        mVisibleLastIndex,
+        first,
+        last));
+    mVisibleFirstIndex = first;
+    mVisibleLastIndex = last;
+    if (mMetrics != null) {
+      mMetrics.eventsEmitted++;
+    }
+  }
+
+  public void scrollTo(int offset, boolean animated) {
+    queueCommand(COMMAND_SCROLL_TO, offset, 0, animated);
+  }
+
+  /**
+   * Scrolls to the end of the content as it is laid out when the command runs, not when it was
+   * issued.
+   */
+  public void scrollToEnd(boolean animated) {
+    queueCommand(COMMAND_SCROLL_TO_END, 0, 0, animated);
+  }
+
+  /**
+   * Scrolls so that the content child at {@code index} starts {@code offset} pixels past the
+   * start of the viewport, using its native position after the anchor correction.
+   */
+  public void scrollToIndex(int index, int offset, boolean animated) {
+    queueCommand(COMMAND_SCROLL_TO_INDEX, offset, index, animated);
+  }
+
+  /**
+   * Replaces any command still waiting for the next draw, so that several commands issued in one
+   * frame cost a single scroll. While detached there is no draw to wait for, so commands run right
+   * away.
+   */
+  private void queueCommand(int command, int offset, int index, boolean animated) {
+    mPendingCommand = command;
+    mPendingCommandOffset = offset;
+    mPendingCommandIndex = index;
+    mPendingCommandAnimated = animated;
+    if (mPreDrawListenerRegistered) {
+      scheduleAnchorCorrection();
+    } else {
+      flushPendingCommand();
+    }
+  }
+
+  private void flushPendingCommand() {
+    int command = mPendingCommand;
+    if (command == COMMAND_NONE) {
+      return;
+    }
+    mPendingCommand = COMMAND_NONE;
+    int target;
+    switch (command) {
+      case COMMAND_SCROLL_TO:
+        target = mPendingCommandOffset;
+        break;
+      case COMMAND_SCROLL_TO_END:
+        if (mContentView == null) {
+          return;
+        }
+        target = mAxis.getSize(mContentView) + mAxis.getEndPadding(mScrollView);
+        break;
+      case COMMAND_SCROLL_TO_INDEX:
+        int index = mPendingCommandIndex;
+        if (mContentView == null || index < 0 || index >= mChildEdgeIndex.size()) {
+          return;
+        }
+        target = mAxis.getStart(mContentView) + mChildEdgeIndex.getStart(index) -
+            mPendingCommandOffset;
+        break;
+      default:
+        return;
+    }
+    if (mPendingCommandAnimated) {
+      mHost.smoothScrollTo(target);
+    } else {
+      mAxis.scrollTo(mScrollView, target);
+    }
+  }
+
+  public void setSendMaterializeRangeEvents(boolean sendMaterializeRangeEvents) {
+    mSendMaterializeRangeEvents = sendMaterializeRangeEvents;
+    mMaterializeFirstIndex = -1;
+    mMaterializeLastIndex = -1;
+    updateMaterializeRange();
+  }
+
+  /**
+   * Sets how far from the viewport, in pixels, children are reported as to be materialized. A
+   * negative distance restores the default of one viewport.
+   */
+  public void setMaterializeDistance(int materializeDistance) {
+    mMaterializeDistance = materializeDistance;
+    updateMaterializeRange();
+  }
+
+  /**
+   * Emits {@link MaterializeRangeChangedEvent} when the range of children within the materialize
+   * distance of the viewport changes.
+   */
+  private void updateMaterializeRange() {
+    if (!mSendMaterializeRangeEvents || mContentView == null) {
+      return;
+    }
+    int offset = getViewportStart();
+    int viewportSize = mAxis.getViewportSize(mScrollView);
+    int distance = mMaterializeDistance < 0 ? viewportSize : mMaterializeDistance;
+    int first = mChildEdgeIndex.firstEndingAfter(offset - distance, 0);
+    int last = first == -1 ? -1 : mChildEdgeIndex.lastStartingBefore(
+        offset + viewportSize + distance);
+    if (last < first) {
+      first = -1;
+      last = -1;
+    }
+    if (first == mMaterializeFirstIndex && last == mMaterializeLastIndex) {
+      return;
+    }
+    getEventDispatcher().dispatchEvent(
+        MaterializeRangeChangedEvent.obtain(mScrollView.getId(), first, last));
+    mMaterializeFirstIndex = first;
+    mMaterializeLastIndex = last;
+    if (mMetrics != null) {
+      mMetrics.eventsEmitted++;
+    }
+  }
+
+  /**
+   * Turns recycling of children further than {@code recycleDistance} pixels from the viewport on,
+   * 0 turns it off.
+   */
+  public void setRecycleDistance(int recycleDistance) {
+    mRecycleDistance = Math.max(recycleDistance, 0);
+    mRecycleRangeSent = false;
+    updateRecycleRange();
+  }
+
+  /**
+   * Emits {@link RecycleRangeChangedEvent} when the range of children within the recycle distance
+   * of the viewport changes, with the children to release. Sticky headers are never released,
+   * since they can be stuck in the viewport while their layout is far before it.
+   */
+  private void updateRecycleRange() {
+    if (mRecycleDistance == 0 || mContentView == null) {
+      return;
+    }
+    int offset = getViewportStart();
+    int first = mChildEdgeIndex.firstEndingAfter(offset - mRecycleDistance, 0);
+    int last = first == -1 ? -1 : mChildEdgeIndex.lastStartingBefore(
+        offset + mAxis.getViewportSize(mScrollView) + mRecycleDistance);
+    if (last < first) {
+      first = -1;
+      last = -1;
+    }
+    if (mRecycleRangeSent && first == mRecycleFirstIndex && last == mRecycleLastIndex) {
+      return;
+    }
+    int releaseFrom = mRecycleRangeSent ? Math.max(mRecycleFirstIndex, 0) : 0;
+    int releaseTo = Math.min(
+        mRecycleRangeSent ? mRecycleLastIndex : Integer.MAX_VALUE,
+        mChildEdgeIndex.size() - 1);
+    WritableArray releasedIndices = Arguments.createArray();
+    WritableArray releasedSizes = Arguments.createArray();
+    for (int i = releaseFrom; i <= releaseTo; i++) {
+      if (first != -1 && i >= first && i <= last) {
+        i = last;
+        continue;
+      }
+      if (Arrays.binarySearch(mStickyHeaderIndices, i) >= 0) {
+        continue;
+      }
+      releasedIndices.pushInt(i);
+      releasedSizes.pushDouble(
+          PixelUtil.toDIPFromPixel(mChildEdgeIndex.getEnd(i) - mChildEdgeIndex.getStart(i)));
+    }
+    getEventDispatcher().dispatchEvent(RecycleRangeChangedEvent.obtain(
+        mScrollView.getId(),
+        first,
+        last,
+        releasedIndices,
+        releasedSizes));
+    mRecycleRangeSent = true;
+    mRecycleFirstIndex = first;
+    mRecycleLastIndex = last;
+    if (mMetrics != null) {
+      mMetrics.eventsEmitted++;
+    }
+  }
+
+  /**
+   * @return the index of the first visible child, or -1 if there is none.
+   */
+  public int getAnchorIndex() {
+    return mContentView != null ? mChildEdgeIndex.firstEndingAfter(getViewportStart(), 0) : -1;
+  }
+
+  /**
+   * @return how far past the start of the first visible child the viewport starts.
+   */
+  public int getAnchorOffset() {
+    int index = getAnchorIndex();
+    return index != -1 ? getViewportStart() - mChildEdgeIndex.getStart(index) : 0;
+  }
+
+  /**
+   * Scrolls to {@code anchorOffset} past the start of the child at {@code anchorIndex} on the
+   * first layout pass where that child exists, which may be several passes away while the content
+   * is still being rendered. -1 cancels a pending one.
+   */
+  public void setInitialAnchor(int anchorIndex, int anchorOffset) {
+    mInitialAnchorIndex = anchorIndex;
+    mInitialAnchorOffset = anchorOffset;
+    if (anchorIndex != -1) {
+      scheduleAnchorCorrection();
+    }
+  }
+
+  private void applyInitialAnchor() {
+    if (mInitialAnchorIndex == -1 || mContentView == null ||
+        mInitialAnchorIndex >= mChildEdgeIndex.size()) {
+      return;
+    }
+    int index = mInitialAnchorIndex;
+    mInitialAnchorIndex = -1;
+    mAxis.scrollTo(
+        mScrollView,
+        mAxis.getStart(mContentView) + mChildEdgeIndex.getStart(index) + mInitialAnchorOffset);
+    mScrollAnchor.record(getViewportStart());
+    updateClippingRect();
+  }
+
+  public void setStickyHeaderIndices(@Nullable int[] stickyHeaderIndices) {
+    if (mStuckHeader != null) {
+      mAxis.setTranslation(mStuckHeader, 0);
+      mStuckHeader = null;
+    }
+    mStickyHeaderIndices = stickyHeaderIndices != null ? stickyHeaderIndices : new int[0];
+    Arrays.sort(mStickyHeaderIndices);
+    updateStickyHeaders();
+  }
+
+  /**
+   * Translates the sticky header that starts last before the viewport so that it stays at the
+   * start of the viewport, until the next header pushes it out. Positions come from the edge
+   * index, which translation doesn't affect, so this is correct right after an anchor correction
+   * and costs a binary search per scroll.
+   */
+  private void updateStickyHeaders() {
+    if (mStickyHeaderIndices.length == 0 || mContentView == null) {
+      return;
+    }
+    disableContentClipping();
+    int viewportStart = getViewportStart();
+    int childCount = mChildEdgeIndex.size();
+    int low = 0;
+    int high = mStickyHeaderIndices.length - 1;
+    int stuck = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int index = mStickyHeaderIndices[mid];
+      if (index < childCount && mChildEdgeIndex.getStart(index) <= viewportStart) {
+        stuck = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+
+    View header = null;
+    int translation = 0;
+    if (stuck != -1) {
+      int index = mStickyHeaderIndices[stuck];
+      header = mChildEdgeIndex.getView(index);
+      translation = viewportStart - mChildEdgeIndex.getStart(index);
+      if (stuck + 1 < mStickyHeaderIndices.length &&
+          mStickyHeaderIndices[stuck + 1] < childCount) {
+        int nextStart = mChildEdgeIndex.getStart(mStickyHeaderIndices[stuck + 1]);
+        translation = Math.min(translation, nextStart - mChildEdgeIndex.getEnd(index));
+      }
+    }
+    if (mStuckHeader != null && mStuckHeader != header) {
+      mAxis.setTranslation(mStuckHeader, 0);
+    }
+    mStuckHeader = header;
+    if (header != null) {
+      mAxis.setTranslation(header, Math.max(translation, 0));
+    }
+  }
+
+  /**
+   * Subview clipping tests children by their layout, not their translation, so it would detach
+   * the stuck header once its layout box leaves the viewport. Content clipping is refused while
+   * sticky headers are set.
+   */
+  private void disableContentClipping() {
+    if (mContentView instanceof ReactViewGroup &&
+        ((ReactViewGroup) mContentView).getRemoveClippedSubviews()) {
+      Log.w(
+          ReactConstants.TAG,
+          "removeClippedSubviews is not supported on the content of a scroll view with sticky " +
+              "headers, turning it off");
+      ((ReactViewGroup) mContentView).setRemoveClippedSubviews(false);
+      mChildEdgeIndex.invalidate();
+    }
+  }
+
+  public void setSendContentSizeEvents(boolean sendContentSizeEvents) {
+    mSendContentSizeEvents = sendContentSizeEvents;
+    mSentContentWidth = -1;
+    mSentContentHeight = -1;
+    if (sendContentSizeEvents) {
+      mContentSizeChanged = true;
+      scheduleAnchorCorrection();
+    }
+  }
+
+  /**
+   * Emits {@link ContentSizeChangedEvent} if the content changed size during the frame. Bulk
+   * inserts lay the content out several times before it is drawn, but only the final size is
+   * sent.
+   */
+  private void dispatchContentSizeChanged() {
+    if (!mContentSizeChanged) {
+      return;
+    }
+    mContentSizeChanged = false;
+    if (!mSendContentSizeEvents || mContentView == null) {
+      return;
+    }
+    int width = mContentView.getWidth();
+    int height = mContentView.getHeight();
+    if (width == mSentContentWidth && height == mSentContentHeight) {
+      return;
+    }
+    mSentContentWidth = width;
+    mSentContentHeight = height;
+    getEventDispatcher().dispatchEvent(
+        ContentSizeChangedEvent.obtain(mScrollView.getId(), width, height));
+    if (mMetrics != null) {
+      mMetrics.eventsEmitted++;
+    }
+  }
+
+  public void setPrefetchDistance(int prefetchDistance) {
+    mPrefetchDistance = Math.max(prefetchDistance, 0);
+    checkPrefetchWindow();
+  }
+
+  public void setPrefetchDistanceScreens(float prefetchDistanceScreens) {
+    mPrefetchDistanceScreens = Math.max(prefetchDistanceScreens, 0);
+    checkPrefetchWindow();
+  }
+
+  private boolean isPrefetchEnabled() {
+    return mPrefetchDistance > 0 || mPrefetchDistanceScreens > 0;
+  }
+
+  /**
+   * Emits {@link PrefetchEvent} for each edge of the content that is within the prefetch
+   * distance of the viewport and has not fired since the content last changed size.
+   */
+  private void checkPrefetchWindow() {
+    if (!isPrefetchEnabled() || mContentView == null) {
+      return;
+    }
+    int viewportSize = mAxis.getViewportSize(mScrollView);
+    if (viewportSize == 0) {
+      return;
+    }
+    int threshold =
+        Math.max(mPrefetchDistance, Math.round(mPrefetchDistanceScreens * viewportSize));
+    int scroll = mAxis.getScroll(mScrollView);
+    if (mPrefetchStartArmed) {
+      int distanceFromStart = scroll - mAxis.getStart(mContentView);
+      if (distanceFromStart <= threshold) {
+        mPrefetchStartArmed = false;
+        dispatchPrefetchEvent(PrefetchEvent.EDGE_START, distanceFromStart);
+      }
+    }
+    if (mPrefetchEndArmed) {
+      int distanceFromEnd = mAxis.getEnd(mContentView) - (scroll + viewportSize);
+      if (distanceFromEnd <= threshold) {
+        mPrefetchEndArmed = false;
+        dispatchPrefetchEvent(PrefetchEvent.EDGE_END, distanceFromEnd);
+      }
+    }
+  }
+
+  private void dispatchPrefetchEvent(int edge, int distanceFromEdge) {
+    if (mMetrics != null) {
+      mMetrics.eventsEmitted++;
+    }
+    getEventDispatcher().dispatchEvent(PrefetchEvent.obtain(
+        mScrollView.getId(),
+        edge,
+        Math.max(distanceFromEdge, 0),
+        mAxis.getSize(mContentView)));
+  }
+
+  public void setTrimDistance(int trimDistance) {
+    mTrimDistance = Math.max(trimDistance, 0);
+    mTrimStartArmed = true;
+    mTrimEndArmed = true;
+  }
+
+  /**
+   * Emits {@link DropRequestEvent} for each edge of the content that has children entirely more
+   * than the trim distance from the viewport, if it has not fired since the content last changed
+   * size. The anchor is always visible, so it is never part of the range.
+   */
+  private void checkTrimWindow() {
+    if (mTrimDistance == 0 || mContentView == null) {
+      return;
+    }
+    int viewportSize = mAxis.getViewportSize(mScrollView);
+    int count = mChildEdgeIndex.size();
+    if (viewportSize == 0 || count == 0) {
+      return;
+    }
+    int viewportStart = getViewportStart();
+    if (mTrimStartArmed) {
+      // If no child reaches that far, the viewport is past the children and nothing is dropped.
+      int keptFirst = mChildEdgeIndex.firstEndingAfter(viewportStart - mTrimDistance, 0);
+      if (keptFirst > 0) {
+        mTrimStartArmed = false;
+        dispatchDropRequestEvent(DropRequestEvent.EDGE_START, 0, keptFirst - 1);
+      }
+    }
+    if (mTrimEndArmed) {
+      int first = mChildEdgeIndex.lastStartingBefore(
+          viewportStart + viewportSize + mTrimDistance) + 1;
+      if (first < count) {
+        mTrimEndArmed = false;
+        dispatchDropRequestEvent(DropRequestEvent.EDGE_END, first, count - 1);
+      }
+    }
+  }
+
+  private void dispatchDropRequestEvent(int edge, int first, int last) {
+    if (mMetrics != null) {
+      mMetrics.eventsEmitted++;
+    }
+    getEventDispatcher().dispatchEvent(DropRequestEvent.obtain(
+        mScrollView.getId(),
+        edge,
+        first,
+        last,
+        mChildEdgeIndex.getEnd(last) - mChildEdgeIndex.getStart(first)));
+  }
+
+  private EventDispatcher getEventDispatcher() {
+    if (mEventDispatcher == null) {
+      mEventDispatcher = ((ReactContext) mScrollView.getContext())
+          .getNativeModule(UIManagerModule.class)
+          .getEventDispatcher();
+    }
+    return mEventDispatcher;
+  }
+
+  public void setScrollEventThrottle(int scrollEventThrottle) {
+    ThrottlingScrollDispatchHelper helper = getScrollDispatchHelper();
+    if (helper != null) {
+      helper.setThrottle(scrollEventThrottle);
+    }
+  }
+
+  public void setScrollEventThrottleDistance(int scrollEventThrottleDistance) {
+    ThrottlingScrollDispatchHelper helper = getScrollDispatchHelper();
+    if (helper != null) {
+      helper.setThrottleDistance(scrollEventThrottleDistance);
+    }
+  }
+
+  /**
+   * Sends a scroll event held back by throttling right away, so that it reaches JS before a drag
+   * or momentum end event.
+   */
+  public void flushScrollEvent() {
+    if (mScrollDispatchHelper != null) {
+      mScrollDispatchHelper.flush();
+    }
+  }
+
+  /**
+   * A scrollPerfTag also turns on metrics collection for the view, aggregated per tag.
+   */
+  public void setScrollPerfTag(@Nullable String scrollPerfTag) {
+    if (mFpsListenerEnabled) {
+      // Frame timing that already started is attributed to the old tag.
+      mFpsListener.disable(mScrollPerfTag);
+      mFpsListenerEnabled = false;
+    }
+    mScrollPerfTag = scrollPerfTag;
+    updateFpsListener();
+    mMetrics = scrollPerfTag != null && mMetricsRegistry != null ?
+        mMetricsRegistry.getOrCreate(scrollPerfTag) : null;
+    // Scroll events are counted by the dispatch helper.
+    ThrottlingScrollDispatchHelper helper =
+        mMetrics != null ? getScrollDispatchHelper() : mScrollDispatchHelper;
+    if (helper != null) {
+      helper.setMetrics(mMetrics);
+    }
+    mIdleWorkScheduler.setMetrics(mMetrics);
+  }
+
+  /**
+   * Sets how long deferred work may run in one idle slot of the UI thread, in milliseconds.
+   */
+  public void setIdleWorkBudget(int idleWorkBudget) {
+    mIdleWorkScheduler.setBudget(idleWorkBudget);
+  }
+
+  private @Nullable ThrottlingScrollDispatchHelper getScrollDispatchHelper() {
+    if (!mTriedToInstallScrollDispatchHelper) {
+      mTriedToInstallScrollDispatchHelper = true;
+      mScrollDispatchHelper =
+          ThrottlingScrollDispatchHelper.install(mScrollView, mStockScrollViewClass);
+    }
+    return mScrollDispatchHelper;
+  }
+
+  public void onScrollChanged(int scrollDelta) {
+    mIdleWorkScheduler.onScroll();
+    // The stock view already ran its clipping pass, but it is stale if it skipped it along with
+    // a suppressed event, or if the lookahead changed since.
+    boolean clippingStale =
+        mScrollDispatchHelper != null && mScrollDispatchHelper.consumeSuppressed();
+    if (updateFlingLookahead(scrollDelta)) {
+      clippingStale = true;
+    }
+    if (clippingStale) {
+      updateClippingRect();
+    }
+    if (mContentView == null) {
+      return;
+    }
+    // While a correction is pending the children already moved, so keep the pre-layout anchor.
+    if (mAnchorCorrectionScheduled) {
+      // A batch can stay open across frames. The user's own scrolling during it has to move the
+      // anchor along, or the correction at its end would scroll back. Scrolls clamped by layout
+      // are left to the correction.
+      if (isBatching() && isUserScrolling()) {
+        mScrollAnchor.shift(scrollDelta);
+        updateStickyHeaders();
+      }
+      return;
+    }
+    mScrollAnchor.record(getViewportStart());
+    updateStickyHeaders();
+    updateVisibleItems();
+    updateMaterializeRange();
+    updateRecycleRange();
+    checkPrefetchWindow();
+    checkTrimWindow();
+  }
+
+  /**
+   * @return whether the scroll is being dragged or moved by the scroller.
+   */
+  private boolean isUserScrolling() {
+    if (mDragging) {
+      return true;
+    }
+    OverScroller scroller = getScroller();
+    return scroller != null && !scroller.isFinished();
+  }
+
+  public void onAttachedToWindow() {
+    if (!mPreDrawListenerRegistered) {
+      mScrollView.getViewTreeObserver().addOnPreDrawListener(mAnchorPreDrawListener);
+      mPreDrawListenerRegistered = true;
+    }
+  }
+
+  public void onDetachedFromWindow() {
+    if (mPreDrawListenerRegistered) {
+      mScrollView.getViewTreeObserver().removeOnPreDrawListener(mAnchorPreDrawListener);
+      mPreDrawListenerRegistered = false;
+    }
+    mAnchorCorrectionScheduled = false;
+    // Whatever changed during an unfinished batch is picked up again on the next layout.
+    mBatchDepth = 0;
+    mBatchEnding = false;
+    if (mMotionCallbackPosted) {
+      mMotionCallbackPosted = false;
+      Choreographer.getInstance().removeFrameCallback(mMotionFrameCallback);
+    }
+    mFlingLookahead = 0;
+    mFlinging = false;
+    mFlingToPage = false;
+    mPostTouchFrames = 0;
+    mDragging = false;
+    mSnapChild = null;
+    updateFpsListener();
+    mIdleWorkScheduler.cancelAll();
+    if (mScrollDispatchHelper != null) {
+      mScrollDispatchHelper.cancel();
+    }
+  }
+
+  /**
+   * Called after the content view is added to the scroll view.
+   */
+  public void onContentViewAdded(View child) {
+    ViewGroup contentView = (ViewGroup) child;
+    contentView.addOnLayoutChangeListener(mContentLayoutChangeListener);
+    contentView.setOnHierarchyChangeListener(mChildHierarchyChangeListener);
+    mContentView = contentView;
+    mChildEdgeIndex.setContentView(contentView);
+    mScrollAnchor.clear();
+    mRecycleRangeSent = false;
+  }
+
+  public void onContentViewRemoved(View child) {
+    child.removeOnLayoutChangeListener(mContentLayoutChangeListener);
+    if (child == mContentView) {
+      mContentView = null;
+      mChildEdgeIndex.setContentView(null);
+      mScrollAnchor.clear();
+      mStuckHeader = null;
+      mSnapChild = null;
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package com.futurepress.visiblescroll;
+
+/**
+ * Direct events emitted by the visible scroll views in addition to the stock
+ * {@link com.facebook.react.views.scroll.ScrollEventType} ones.
+ */
+public enum VisibleScrollEventType {
+  VISIBLE_ITEMS_CHANGED("topVisibleItemsChanged"),
+  PREFETCH("topPrefetch"),
+  MATERIALIZE_RANGE_CHANGED("topMaterializeRangeChanged"),
+  RECYCLE_RANGE_CHANGED("topRecycleRangeChanged"),
+  CONTENT_SIZE_CHANGED("topContentSizeChanged"),
+  DROP_REQUEST("topDropRequest");
+
+  private final String mJSEventName;
+
+  VisibleScrollEventType(String jsName) {
+    mJSEventName = jsName;
+  }
+
+  public String getJSEventName() {
+    return mJSEventName;
+  }
+}
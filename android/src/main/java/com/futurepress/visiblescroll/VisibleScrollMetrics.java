@@ -0,0 +1,56 @@
+package com.futurepress.visiblescroll;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * Counters and timings for the visible scroll views sharing one scrollPerfTag. Only written on
+ * the UI thread.
+ */
+public class VisibleScrollMetrics {
+
+  public int layoutPasses;
+  public int anchorCorrections;
+  public long anchorCorrectionDistance;
+  public long layoutListenerNanos;
+  public int clippingUpdates;
+  public int clippingUpdatesSkipped;
+  public int eventsEmitted;
+  public int eventsCoalesced;
+  public int idleTasksRun;
+  public long idleWorkNanos;
+  public int idleSlotsExhausted;
+  public final FrameTimingHistogram frameTiming = new FrameTimingHistogram();
+
+  public void reset() {
+    layoutPasses = 0;
+    anchorCorrections = 0;
+    anchorCorrectionDistance = 0;
+    layoutListenerNanos = 0;
+    clippingUpdates = 0;
+    clippingUpdatesSkipped = 0;
+    eventsEmitted = 0;
+    eventsCoalesced = 0;
+    idleTasksRun = 0;
+    idleWorkNanos = 0;
+    idleSlotsExhausted = 0;
+    frameTiming.reset();
+  }
+
+  public WritableMap toWritableMap() {
+    WritableMap map = Arguments.createMap();
+    map.putInt("layoutPasses", layoutPasses);
+    map.putInt("anchorCorrections", anchorCorrections);
+    map.putDouble("anchorCorrectionDistance", anchorCorrectionDistance);
+    map.putDouble("layoutListenerMs", layoutListenerNanos / 1e6);
+    map.putInt("clippingUpdates", clippingUpdates);
+    map.putInt("clippingUpdatesSkipped", clippingUpdatesSkipped);
+    map.putInt("eventsEmitted", eventsEmitted);
+    map.putInt("eventsCoalesced", eventsCoalesced);
+    map.putInt("idleTasksRun", idleTasksRun);
+    map.putDouble("idleWorkMs", idleWorkNanos / 1e6);
+    map.putInt("idleSlotsExhausted", idleSlotsExhausted);
+    frameTiming.writeTo(map);
+    return map;
+  }
+}
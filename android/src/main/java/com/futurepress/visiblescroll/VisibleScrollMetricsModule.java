@@ -0,0 +1,78 @@
+package com.futurepress.visiblescroll;
+
+import java.util.Map;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.UiThreadUtil;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * Exposes the metrics collected by visible scroll views that have a scrollPerfTag to JS. Metrics
+ * are written on the UI thread, so they are read there too.
+ */
+public class VisibleScrollMetricsModule extends ReactContextBaseJavaModule {
+
+  protected static final String NAME = "FPVisibleScrollMetrics";
+
+  private final VisibleScrollMetricsRegistry mRegistry;
+
+  public VisibleScrollMetricsModule(
+      ReactApplicationContext reactContext,
+      VisibleScrollMetricsRegistry registry) {
+    super(reactContext);
+    mRegistry = registry;
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  /**
+   * Resolves with the metrics of {@code scrollPerfTag}, or null if no view has used it.
+   */
+  @ReactMethod
+  public void getMetrics(final String scrollPerfTag, final Promise promise) {
+    UiThreadUtil.runOnUiThread(new Runnable() {
+      @Override
+      public void run() {
+        VisibleScrollMetrics metrics = mRegistry.get(scrollPerfTag);
+        promise.resolve(metrics == null ? null : metrics.toWritableMap());
+      }
+    });
+  }
+
+  /**
+   * Resolves with the metrics of every scrollPerfTag, keyed by tag.
+   */
+  @ReactMethod
+  public void getAllMetrics(final Promise promise) {
+    UiThreadUtil.runOnUiThread(new Runnable() {
+      @Override
+      public void run() {
+        WritableMap result = Arguments.createMap();
+        for (Map.Entry<String, VisibleScrollMetrics> entry : mRegistry.getAll().entrySet()) {
+          result.putMap(entry.getKey(), entry.getValue().toWritableMap());
+        }
+        promise.resolve(result);
+      }
+    });
+  }
+
+  @ReactMethod
+  public void resetMetrics(final String scrollPerfTag) {
+    UiThreadUtil.runOnUiThread(new Runnable() {
+      @Override
+      public void run() {
+        VisibleScrollMetrics metrics = mRegistry.get(scrollPerfTag);
+        if (metrics != null) {
+          metrics.reset();
+        }
+      }
+    });
+  }
+}
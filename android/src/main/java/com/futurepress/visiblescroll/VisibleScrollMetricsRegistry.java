@@ -0,0 +1,37 @@
+package com.futurepress.visiblescroll;
+
+import javax.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.facebook.react.bridge.UiThreadUtil;
+
+/**
+ * Metrics of every scrollPerfTag in use, shared by the view managers that record them and the
+ * {@link VisibleScrollMetricsModule} that reads them. Only accessed on the UI thread.
+ */
+public class VisibleScrollMetricsRegistry {
+
+  private final Map<String, VisibleScrollMetrics> mMetrics = new HashMap<>();
+
+  public VisibleScrollMetrics getOrCreate(String scrollPerfTag) {
+    UiThreadUtil.assertOnUiThread();
+    VisibleScrollMetrics metrics = mMetrics.get(scrollPerfTag);
+    if (metrics == null) {
+      metrics = new VisibleScrollMetrics();
+      mMetrics.put(scrollPerfTag, metrics);
+    }
+    return metrics;
+  }
+
+  public @Nullable VisibleScrollMetrics get(String scrollPerfTag) {
+    UiThreadUtil.assertOnUiThread();
+    return mMetrics.get(scrollPerfTag);
+  }
+
+  public Map<String, VisibleScrollMetrics> getAll() {
+    UiThreadUtil.assertOnUiThread();
+    return mMetrics;
+  }
+}
@@ -0,0 +1,79 @@
+package com.futurepress.visiblescroll;
+
+import javax.annotation.Nullable;
+
+import java.util.Map;
+
+import com.facebook.infer.annotation.Assertions;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.common.MapBuilder;
+import com.facebook.react.uimanager.PixelUtil;
+import com.facebook.react.views.scroll.ReactScrollViewCommandHelper;
+
+/**
+ * Helper for the commands the visible scroll views support on top of
+ * {@link ReactScrollViewCommandHelper}. Unknown commands are passed on to it.
+ */
+public class VisibleScrollViewCommandHelper {
+
+  // Kept clear of the ids used by ReactScrollViewCommandHelper.
+  public static final int COMMAND_SCROLL_TO_INDEX = 101;
+  public static final int COMMAND_BEGIN_BATCH = 102;
+  public static final int COMMAND_END_BATCH = 103;
+
+  public interface VisibleScrollCommandHandler<T>
+      extends ReactScrollViewCommandHelper.ScrollCommandHandler<T> {
+    void scrollToIndex(T scrollView, ScrollToIndexCommandData data);
+    void beginBatch(T scrollView);
+    void endBatch(T scrollView);
+  }
+
+  public static class ScrollToIndexCommandData {
+
+    public final int mIndex;
+    public final int mOffset;
+    public final boolean mAnimated;
+
+    ScrollToIndexCommandData(int index, int offset, boolean animated) {
+      mIndex = index;
+      mOffset = offset;
+      mAnimated = animated;
+    }
+  }
+
+  public static Map<String, Integer> getCommandsMap() {
+    Map<String, Integer> commands = MapBuilder.newHashMap();
+    commands.putAll(ReactScrollViewCommandHelper.getCommandsMap());
+    commands.put("scrollToIndex", COMMAND_SCROLL_TO_INDEX);
+    commands.put("beginBatch", COMMAND_BEGIN_BATCH);
+    commands.put("endBatch", COMMAND_END_BATCH);
+    return commands;
+  }
+
+  public static <T> void receiveCommand(
+      VisibleScrollCommandHandler<T> viewManager,
+      T scrollView,
+      int commandType,
+      @Nullable ReadableArray args) {
+    switch (commandType) {
+      case COMMAND_SCROLL_TO_INDEX: {
+        Assertions.assertNotNull(args);
+        int index = args.getInt(0);
+        int offset = Math.round(PixelUtil.toPixelFromDIP(args.getDouble(1)));
+        boolean animated = args.getBoolean(2);
+        viewManager.scrollToIndex(scrollView, new ScrollToIndexCommandData(index, offset, animated));
+        return;
+      }
+      case COMMAND_BEGIN_BATCH: {
+        viewManager.beginBatch(scrollView);
+        return;
+      }
+      case COMMAND_END_BATCH: {
+        viewManager.endBatch(scrollView);
+        return;
+      }
+      default:
+        ReactScrollViewCommandHelper.receiveCommand(viewManager, scrollView, commandType, args);
+    }
+  }
+}
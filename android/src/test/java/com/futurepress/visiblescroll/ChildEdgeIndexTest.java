@@ -0,0 +1,101 @@
+package com.futurepress.visiblescroll;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Randomized checks that {@link ChildEdgeIndex}, kept up to date in place by hierarchy and layout
+ * callbacks, always agrees with a walk over the content's children. Seeds are fixed so that a
+ * failure reproduces.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class ChildEdgeIndexTest {
+
+  private static final int ROUNDS = 500;
+  private static final int MAX_CHANGES_PER_ROUND = 8;
+  private static final int QUERIES_PER_ROUND = 20;
+  private static final int MIN_CHILDREN = 0;
+
+  @Test
+  public void testMatchesChildrenVertically() {
+    checkIndexInvariant(ScrollAxis.VERTICAL, 11);
+  }
+
+  @Test
+  public void testMatchesChildrenHorizontally() {
+    checkIndexInvariant(ScrollAxis.HORIZONTAL, 12);
+  }
+
+  @Test
+  public void testGenerationChangesWithChildren() {
+    TestContent content = new TestContent(RuntimeEnvironment.application, ScrollAxis.VERTICAL);
+    content.insert(0, 100);
+    content.insert(1, 100);
+    content.layout();
+    assertEquals(2, content.index.size());
+    int generation = content.index.getGeneration();
+
+    content.resize(0, 50);
+    content.layout();
+    assertEquals(generation, content.index.getGeneration());
+
+    content.insert(0, 100);
+    content.layout();
+    assertEquals(3, content.index.size());
+    int afterInsert = content.index.getGeneration();
+    assertTrue(generation != afterInsert);
+
+    content.remove(2);
+    content.layout();
+    assertEquals(2, content.index.size());
+    assertTrue(afterInsert != content.index.getGeneration());
+  }
+
+  private void checkIndexInvariant(ScrollAxis axis, long seed) {
+    Random random = new Random(seed);
+    TestContent content = new TestContent(RuntimeEnvironment.application, axis);
+    content.layout();
+
+    for (int round = 0; round < ROUNDS; round++) {
+      int changes = 1 + random.nextInt(MAX_CHANGES_PER_ROUND);
+      for (int i = 0; i < changes; i++) {
+        content.mutate(random, MIN_CHILDREN);
+      }
+      // Now and then fall back to a full rebuild, as a clipping or batch update would.
+      if (random.nextInt(10) == 0) {
+        content.index.invalidate();
+      }
+      content.layout();
+
+      String message = "seed " + seed + ", round " + round;
+      assertEquals(message, content.size(), content.index.size());
+      for (int i = 0; i < content.size(); i++) {
+        assertSame(message, content.getChild(i), content.index.getView(i));
+        assertEquals(message, axis.getStart(content.getChild(i)), content.index.getStart(i));
+        assertEquals(message, axis.getEnd(content.getChild(i)), content.index.getEnd(i));
+      }
+      for (int i = 0; i < QUERIES_PER_ROUND; i++) {
+        int offset = random.nextInt(content.getLength() + 2) - 1;
+        int fromIndex = random.nextInt(content.size() + 1);
+        assertEquals(
+            message + ", offset " + offset,
+            content.firstEndingAfter(offset, fromIndex),
+            content.index.firstEndingAfter(offset, fromIndex));
+        assertEquals(
+            message + ", offset " + offset,
+            content.lastStartingBefore(offset),
+            content.index.lastStartingBefore(offset));
+      }
+    }
+  }
+}
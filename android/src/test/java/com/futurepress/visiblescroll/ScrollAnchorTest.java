@@ -0,0 +1,113 @@
+package com.futurepress.visiblescroll;
+
+import java.util.Random;
+
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Randomized checks that the correction {@link ScrollAnchor} computes puts the recorded child back
+ * at its offset from the viewport, whatever sequence of inserts, removes and resizes ran in
+ * between. Seeds are fixed so that a failure reproduces.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class ScrollAnchorTest {
+
+  private static final int ROUNDS = 500;
+  private static final int MAX_CHANGES_PER_ROUND = 8;
+  private static final int INITIAL_CHILDREN = 40;
+  private static final int MIN_CHILDREN = 5;
+
+  @Test
+  public void testKeepsAnchorInPlaceVertically() {
+    checkAnchorInvariant(ScrollAxis.VERTICAL, 1, 0);
+  }
+
+  @Test
+  public void testKeepsAnchorInPlaceHorizontally() {
+    checkAnchorInvariant(ScrollAxis.HORIZONTAL, 2, 0);
+  }
+
+  @Test
+  public void testKeepsAnchorInPlaceAfterMinIndex() {
+    checkAnchorInvariant(ScrollAxis.VERTICAL, 3, 2);
+  }
+
+  @Test
+  public void testNoCorrectionWithoutChanges() {
+    TestContent content = createContent(ScrollAxis.VERTICAL, new Random(4));
+    ScrollAnchor anchor = new ScrollAnchor(ScrollAxis.VERTICAL, content.index);
+    for (int viewportStart = 0; viewportStart < content.getLength(); viewportStart += 37) {
+      anchor.record(viewportStart);
+      assertEquals(0, anchor.getCorrection(content.view, viewportStart));
+    }
+  }
+
+  @Test
+  public void testNoCorrectionWhenAnchorAndFallbackAreRemoved() {
+    TestContent content = createContent(ScrollAxis.VERTICAL, new Random(5));
+    ScrollAnchor anchor = new ScrollAnchor(ScrollAxis.VERTICAL, content.index);
+    int viewportStart = content.getLength() / 2;
+    anchor.record(viewportStart);
+    int anchorIndex = content.firstEndingAfter(viewportStart, 0);
+    content.remove(anchorIndex);
+    content.remove(anchorIndex);
+    content.insert(0, 500);
+    content.layout();
+    assertEquals(0, anchor.getCorrection(content.view, viewportStart));
+  }
+
+  private void checkAnchorInvariant(ScrollAxis axis, long seed, int minIndex) {
+    Random random = new Random(seed);
+    TestContent content = createContent(axis, random);
+    ScrollAnchor anchor = new ScrollAnchor(axis, content.index);
+    anchor.setMinIndex(minIndex);
+
+    for (int round = 0; round < ROUNDS; round++) {
+      int viewportStart = random.nextInt(Math.max(content.getLength(), 1));
+      anchor.record(viewportStart);
+
+      int anchorIndex = content.firstEndingAfter(viewportStart, minIndex);
+      View anchorView = anchorIndex != -1 ? content.getChild(anchorIndex) : null;
+      int anchorOffset = anchorView != null ? axis.getStart(anchorView) - viewportStart : 0;
+      View fallbackView = anchorIndex != -1 && anchorIndex + 1 < content.size() ?
+          content.getChild(anchorIndex + 1) :
+          null;
+      int fallbackOffset =
+          fallbackView != null ? axis.getStart(fallbackView) - viewportStart : 0;
+
+      int changes = 1 + random.nextInt(MAX_CHANGES_PER_ROUND);
+      for (int i = 0; i < changes; i++) {
+        content.mutate(random, MIN_CHILDREN);
+      }
+      content.layout();
+
+      int corrected = viewportStart + anchor.getCorrection(content.view, viewportStart);
+      String message = "seed " + seed + ", round " + round;
+      if (anchorView != null && anchorView.getParent() == content.view) {
+        assertEquals(message, anchorOffset, axis.getStart(anchorView) - corrected);
+      } else if (fallbackView != null && fallbackView.getParent() == content.view) {
+        assertEquals(message, fallbackOffset, axis.getStart(fallbackView) - corrected);
+      } else {
+        assertEquals(message, viewportStart, corrected);
+      }
+    }
+  }
+
+  private static TestContent createContent(ScrollAxis axis, Random random) {
+    TestContent content = new TestContent(RuntimeEnvironment.application, axis);
+    for (int i = 0; i < INITIAL_CHILDREN; i++) {
+      content.insert(i, TestContent.randomSize(random));
+    }
+    content.layout();
+    return content;
+  }
+}
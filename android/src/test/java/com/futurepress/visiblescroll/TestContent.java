@@ -0,0 +1,187 @@
+package com.futurepress.visiblescroll;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * A content view whose children are laid out end to end along one axis, feeding a
+ * {@link ChildEdgeIndex} through the same listeners {@link VisibleScrollEngine} installs.
+ */
+final class TestContent {
+
+  private static final int CROSS_SIZE = 100;
+
+  final ScrollAxis axis;
+  final ViewGroup view;
+  final ChildEdgeIndex index;
+
+  private final Context mContext;
+  private final ArrayList<Integer> mSizes = new ArrayList<>();
+
+  private final View.OnLayoutChangeListener mChildLayoutListener =
+      new View.OnLayoutChangeListener() {
+        @Override
+        public void onLayoutChange(
+            View v,
+            int left,
+            int top,
+            int right,
+            int bottom,
+            int oldLeft,
+            int oldTop,
+            int oldRight,
+            int oldBottom) {
+          index.onChildLayout(v, axis.along(left, top), axis.along(right, bottom));
+        }
+      };
+
+  TestContent(Context context, ScrollAxis axis) {
+    mContext = context;
+    this.axis = axis;
+    view = new ContentView(context);
+    index = new ChildEdgeIndex(axis);
+    view.setOnHierarchyChangeListener(new ViewGroup.OnHierarchyChangeListener() {
+      @Override
+      public void onChildViewAdded(View parent, View child) {
+        child.addOnLayoutChangeListener(mChildLayoutListener);
+        index.onChildAdded(child);
+      }
+
+      @Override
+      public void onChildViewRemoved(View parent, View child) {
+        child.removeOnLayoutChangeListener(mChildLayoutListener);
+        index.onChildRemoved(child);
+      }
+    });
+    index.setContentView(view);
+  }
+
+  /**
+   * Adds a child at {@code position} without laying anything out, like a hierarchy update that
+   * precedes the layout pass.
+   */
+  View insert(int position, int size) {
+    View child = new View(mContext);
+    mSizes.add(position, size);
+    view.addView(child, position);
+    return child;
+  }
+
+  void remove(int position) {
+    mSizes.remove(position);
+    view.removeViewAt(position);
+  }
+
+  void resize(int position, int size) {
+    mSizes.set(position, size);
+  }
+
+  /**
+   * Inserts, removes or resizes one random child. Removing is skipped once only
+   * {@code minChildren} are left, so the content never runs dry.
+   */
+  void mutate(Random random, int minChildren) {
+    switch (random.nextInt(3)) {
+      case 0:
+        insert(random.nextInt(size() + 1), randomSize(random));
+        break;
+      case 1:
+        if (size() > minChildren) {
+          remove(random.nextInt(size()));
+        }
+        break;
+      default:
+        if (size() > 0) {
+          resize(random.nextInt(size()), randomSize(random));
+        }
+        break;
+    }
+  }
+
+  /**
+   * @return a child size between 1 and 300, or now and then 0, as for collapsed children.
+   */
+  static int randomSize(Random random) {
+    return random.nextInt(8) == 0 ? 0 : 1 + random.nextInt(300);
+  }
+
+  /**
+   * Lays every child out after the previous one, then the content view around them.
+   */
+  void layout() {
+    int offset = 0;
+    for (int i = 0; i < mSizes.size(); i++) {
+      int end = offset + mSizes.get(i);
+      layout(view.getChildAt(i), offset, end);
+      offset = end;
+    }
+    layout(view, 0, offset);
+  }
+
+  int size() {
+    return mSizes.size();
+  }
+
+  int getLength() {
+    int length = 0;
+    for (int i = 0; i < mSizes.size(); i++) {
+      length += mSizes.get(i);
+    }
+    return length;
+  }
+
+  View getChild(int position) {
+    return view.getChildAt(position);
+  }
+
+  /**
+   * @return the first child ending after {@code offset}, found by walking every child, or -1.
+   */
+  int firstEndingAfter(int offset, int fromIndex) {
+    for (int i = Math.max(fromIndex, 0); i < view.getChildCount(); i++) {
+      if (axis.getEnd(view.getChildAt(i)) > offset) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the last child starting before {@code offset}, found by walking every child, or -1.
+   */
+  int lastStartingBefore(int offset) {
+    for (int i = view.getChildCount() - 1; i >= 0; i--) {
+      if (axis.getStart(view.getChildAt(i)) < offset) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Leaves its children where {@link #layout()} put them, as React views leave theirs to the UI
+   * manager.
+   */
+  private static class ContentView extends ViewGroup {
+
+    ContentView(Context context) {
+      super(context);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+    }
+  }
+
+  private void layout(View child, int start, int end) {
+    child.layout(
+        axis.along(start, 0),
+        axis.along(0, start),
+        axis.along(end, CROSS_SIZE),
+        axis.along(CROSS_SIZE, end));
+  }
+}
@@ -0,0 +1,130 @@
+package com.futurepress.visiblescroll;
+
+import java.lang.reflect.Field;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.view.View;
+import android.widget.OverScroller;
+import android.widget.ScrollView;
+
+import com.facebook.react.uimanager.ReactClippingViewGroup;
+
+/**
+ * A plain vertical scroll view driving a {@link VisibleScrollEngine} the way
+ * {@link FPVisibleScrollView} does, without the React Native view and bridge around it. Its
+ * metrics are recorded under one tag.
+ */
+class TestScrollView extends ScrollView implements ReactClippingViewGroup {
+
+  private static final String SCROLL_PERF_TAG = "test";
+
+  final VisibleScrollEngine engine;
+  final VisibleScrollMetrics metrics;
+
+  private boolean mRemoveClippedSubviews = false;
+  private boolean mInvalidated = false;
+
+  TestScrollView(Context context) {
+    super(context);
+    VisibleScrollMetricsRegistry registry = new VisibleScrollMetricsRegistry();
+    engine = new VisibleScrollEngine(
+        this,
+        ScrollAxis.VERTICAL,
+        TestScrollView.class,
+        null,
+        registry,
+        new VisibleScrollEngine.Host() {
+          @Override
+          public void updateClippingRectUnconditionally() {
+          }
+
+          @Override
+          public void smoothScrollTo(int offset) {
+            TestScrollView.this.smoothScrollTo(getScrollX(), offset);
+          }
+        });
+    engine.setScrollPerfTag(SCROLL_PERF_TAG);
+    metrics = registry.get(SCROLL_PERF_TAG);
+  }
+
+  /**
+   * Lays the viewport out and attaches the engine. Called before the content is added, since the
+   * scroll view's own layout would otherwise reposition it.
+   */
+  void setUp(int width, int height) {
+    layout(0, 0, width, height);
+    engine.onAttachedToWindow();
+  }
+
+  /**
+   * Runs what happens right before a frame is drawn.
+   */
+  void preDraw() {
+    getViewTreeObserver().dispatchOnPreDraw();
+  }
+
+  /**
+   * Runs a frame the way the view tree does: the pre-draw pass only runs if the view was
+   * invalidated since the last frame.
+   */
+  void drawFrame() {
+    if (mInvalidated) {
+      mInvalidated = false;
+      preDraw();
+    }
+  }
+
+  @Override
+  public void invalidate() {
+    super.invalidate();
+    mInvalidated = true;
+  }
+
+  OverScroller getScroller() {
+    try {
+      Field scrollerField = ScrollView.class.getDeclaredField("mScroller");
+      scrollerField.setAccessible(true);
+      return (OverScroller) scrollerField.get(this);
+    } catch (NoSuchFieldException | IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  @Override
+  public void addView(View child, int index) {
+    super.addView(child, index);
+    engine.onContentViewAdded(child);
+  }
+
+  @Override
+  protected void onScrollChanged(int x, int y, int oldX, int oldY) {
+    super.onScrollChanged(x, y, oldX, oldY);
+    // As the React Native scroll view does.
+    if (mRemoveClippedSubviews) {
+      updateClippingRect();
+    }
+    engine.onScrollChanged(y - oldY);
+  }
+
+  @Override
+  public void updateClippingRect() {
+    engine.updateClippingRect();
+  }
+
+  @Override
+  public void getClippingRect(Rect outClippingRect) {
+    outClippingRect.set(0, getScrollY(), getWidth(), getScrollY() + getHeight());
+    engine.extendClippingRect(outClippingRect);
+  }
+
+  @Override
+  public void setRemoveClippedSubviews(boolean removeClippedSubviews) {
+    mRemoveClippedSubviews = removeClippedSubviews;
+  }
+
+  @Override
+  public boolean getRemoveClippedSubviews() {
+    return mRemoveClippedSubviews;
+  }
+}
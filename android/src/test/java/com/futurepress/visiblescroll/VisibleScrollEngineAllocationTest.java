@@ -0,0 +1,167 @@
+package com.futurepress.visiblescroll;
+
+import java.lang.management.ManagementFactory;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ScrollView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that scroll frames and layout passes allocate nothing in the engine once it is warmed
+ * up. The framework and Robolectric's shadows allocate on their own, so each frame is measured
+ * against the same frame on a stock scroll view with the same content and listener count.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class VisibleScrollEngineAllocationTest {
+
+  private static final int VIEWPORT_SIZE = 1000;
+  private static final int CHILD_SIZE = 100;
+  private static final int CHILD_COUNT = 200;
+  private static final int FIRST_SCROLL = 5000;
+  private static final int SCROLL_STEP = 37;
+  private static final int WARMUP_FRAMES = 200;
+  private static final int MEASURED_FRAMES = 2000;
+
+  private static final View.OnLayoutChangeListener NO_OP_LAYOUT_LISTENER =
+      new View.OnLayoutChangeListener() {
+        @Override
+        public void onLayoutChange(
+            View v,
+            int left,
+            int top,
+            int right,
+            int bottom,
+            int oldLeft,
+            int oldTop,
+            int oldRight,
+            int oldBottom) {
+        }
+      };
+
+  private TestScrollView mScrollView;
+  private TestContent mContent;
+  private ScrollView mBaselineScrollView;
+  private TestContent mBaselineContent;
+
+  @Before
+  public void setUp() {
+    Context context = RuntimeEnvironment.application;
+    mScrollView = new TestScrollView(context);
+    mScrollView.setUp(VIEWPORT_SIZE, VIEWPORT_SIZE);
+    mContent = createContent(mScrollView);
+    mScrollView.preDraw();
+
+    mBaselineScrollView = new ScrollView(context);
+    mBaselineScrollView.layout(0, 0, VIEWPORT_SIZE, VIEWPORT_SIZE);
+    mBaselineContent = createContent(mBaselineScrollView);
+    // Stands in for the engine's listener, since the framework copies the listener list.
+    for (int i = 0; i < mBaselineContent.size(); i++) {
+      mBaselineContent.getChild(i).addOnLayoutChangeListener(NO_OP_LAYOUT_LISTENER);
+    }
+  }
+
+  @Test
+  public void testScrollFramesDoNotAllocate() {
+    Frame engineFrame = new Frame() {
+      @Override
+      public void run(int frame) {
+        mScrollView.scrollTo(0, getScroll(frame));
+      }
+    };
+    Frame baselineFrame = new Frame() {
+      @Override
+      public void run(int frame) {
+        mBaselineScrollView.scrollTo(0, getScroll(frame));
+      }
+    };
+    assertNoEngineAllocations(engineFrame, baselineFrame);
+  }
+
+  @Test
+  public void testLayoutPassesDoNotAllocate() {
+    mScrollView.scrollTo(0, FIRST_SCROLL);
+    mBaselineScrollView.scrollTo(0, FIRST_SCROLL);
+    Frame engineFrame = new Frame() {
+      @Override
+      public void run(int frame) {
+        resizeFirstChild(mContent, frame);
+        mScrollView.preDraw();
+      }
+    };
+    Frame baselineFrame = new Frame() {
+      @Override
+      public void run(int frame) {
+        resizeFirstChild(mBaselineContent, frame);
+        mBaselineScrollView.getViewTreeObserver().dispatchOnPreDraw();
+        // The same scroll the anchor correction makes.
+        mBaselineScrollView.scrollTo(0, FIRST_SCROLL + (frame % 2 == 0 ? CHILD_SIZE : 0));
+      }
+    };
+    assertNoEngineAllocations(engineFrame, baselineFrame);
+  }
+
+  private interface Frame {
+    void run(int frame);
+  }
+
+  private static void assertNoEngineAllocations(Frame engineFrame, Frame baselineFrame) {
+    measureAllocatedBytes(engineFrame, WARMUP_FRAMES);
+    measureAllocatedBytes(baselineFrame, WARMUP_FRAMES);
+    long engineBytes = measureAllocatedBytes(engineFrame, MEASURED_FRAMES);
+    long baselineBytes = measureAllocatedBytes(baselineFrame, MEASURED_FRAMES);
+    assertTrue(
+        "engine frames allocated " + (engineBytes - baselineBytes) / (double) MEASURED_FRAMES +
+            " bytes each",
+        engineBytes <= baselineBytes);
+  }
+
+  private static long measureAllocatedBytes(Frame frame, int frames) {
+    com.sun.management.ThreadMXBean threadBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < frames; i++) {
+      frame.run(i);
+    }
+    return threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+  }
+
+  /**
+   * @return a scroll offset sweeping back and forth over a few viewports, so the first visible
+   *     child keeps changing.
+   */
+  private static int getScroll(int frame) {
+    int sweep = 3 * VIEWPORT_SIZE / SCROLL_STEP;
+    int step = frame % (2 * sweep);
+    return FIRST_SCROLL + SCROLL_STEP * (step < sweep ? step : 2 * sweep - step);
+  }
+
+  /**
+   * Alternates the size of the first child, which moves every other child on each layout pass.
+   */
+  private static void resizeFirstChild(TestContent content, int frame) {
+    content.resize(0, frame % 2 == 0 ? 2 * CHILD_SIZE : CHILD_SIZE);
+    content.layout();
+  }
+
+  private static TestContent createContent(ViewGroup scrollView) {
+    TestContent content = new TestContent(RuntimeEnvironment.application, ScrollAxis.VERTICAL);
+    for (int i = 0; i < CHILD_COUNT; i++) {
+      content.insert(i, CHILD_SIZE);
+    }
+    content.layout();
+    scrollView.addView(content.view);
+    return content;
+  }
+}
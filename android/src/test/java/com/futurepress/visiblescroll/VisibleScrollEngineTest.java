@@ -0,0 +1,221 @@
+package com.futurepress.visiblescroll;
+
+import android.view.View;
+import android.widget.OverScroller;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class VisibleScrollEngineTest {
+
+  private static final int VIEWPORT_SIZE = 1000;
+  private static final int CHILD_SIZE = 100;
+  private static final int CHILD_COUNT = 200;
+  private static final int INITIAL_SCROLL = 5050;
+
+  private TestScrollView mScrollView;
+  private TestContent mContent;
+
+  @Before
+  public void setUp() {
+    mScrollView = new TestScrollView(RuntimeEnvironment.application);
+    mScrollView.setUp(VIEWPORT_SIZE, VIEWPORT_SIZE);
+    // The engine takes over the content's hierarchy listener, so only its own index follows the
+    // content from here on.
+    mContent = new TestContent(RuntimeEnvironment.application, ScrollAxis.VERTICAL);
+    for (int i = 0; i < CHILD_COUNT; i++) {
+      mContent.insert(i, CHILD_SIZE);
+    }
+    mContent.layout();
+    mScrollView.addView(mContent.view);
+    mScrollView.preDraw();
+    mScrollView.scrollTo(0, INITIAL_SCROLL);
+    mScrollView.metrics.reset();
+  }
+
+  @Test
+  public void testPrependsCostOneCorrectionPerPass() {
+    View anchor = mContent.getChild(INITIAL_SCROLL / CHILD_SIZE);
+    int offset = anchor.getTop() - mScrollView.getScrollY();
+    int passes = 0;
+    int prepended = 0;
+    for (int count = 1; count <= 1000; count *= 10) {
+      prependChildren(count);
+      passes++;
+      prepended += count;
+
+      assertEquals(offset, anchor.getTop() - mScrollView.getScrollY());
+      assertEquals(passes, mScrollView.metrics.layoutPasses);
+      assertEquals(passes, mScrollView.metrics.anchorCorrections);
+      assertEquals(prepended * CHILD_SIZE, mScrollView.metrics.anchorCorrectionDistance);
+    }
+  }
+
+  @Test
+  public void testAnchorErrorIsZeroUnlessClamped() {
+    prependChildren(1);
+    assertEquals(0, mScrollView.engine.getLastAnchorError());
+
+    // At the end of the content, a child before the anchor grows while the last ones collapse,
+    // so the corrected scroll is past the end by their size.
+    int end = mContent.getLength() - VIEWPORT_SIZE;
+    mScrollView.scrollTo(0, end);
+    mContent.resize(0, 2 * CHILD_SIZE);
+    for (int i = mContent.size() - 3; i < mContent.size(); i++) {
+      mContent.resize(i, 0);
+    }
+    mContent.layout();
+    mScrollView.preDraw();
+
+    assertEquals(end - 2 * CHILD_SIZE, mScrollView.getScrollY());
+    assertEquals(3 * CHILD_SIZE, mScrollView.engine.getLastAnchorError());
+
+    // A pass without a correction reports no error rather than the last one.
+    mContent.resize(mContent.size() - 1, CHILD_SIZE);
+    mContent.layout();
+    mScrollView.preDraw();
+    assertEquals(0, mScrollView.engine.getLastAnchorError());
+  }
+
+  @Test
+  public void testClippingRunsAfterEveryLayoutChange() {
+    mScrollView.setRemoveClippedSubviews(true);
+    mScrollView.updateClippingRect();
+    mScrollView.metrics.reset();
+
+    mScrollView.scrollTo(0, INITIAL_SCROLL + 10);
+    assertEquals(0, mScrollView.metrics.clippingUpdates);
+    assertEquals(1, mScrollView.metrics.clippingUpdatesSkipped);
+
+    // The visible children stay the same, but the content view has to see the current rect.
+    mContent.resize(mContent.size() - 1, 2 * CHILD_SIZE);
+    mContent.layout();
+    mScrollView.preDraw();
+    assertEquals(1, mScrollView.metrics.clippingUpdates);
+  }
+
+  @Test
+  public void testCorrectionMovesRunningFling() {
+    OverScroller scroller = mScrollView.getScroller();
+    int scroll = mScrollView.getScrollY();
+    scroller.fling(0, scroll, 0, 2000, 0, 0, 0, mContent.getLength() - VIEWPORT_SIZE);
+    mScrollView.engine.onFling(false);
+    int distance = scroller.getFinalY() - scroller.getCurrY();
+
+    prependChildren(10);
+
+    // The scroll view copies the scroller's position on the next frame, so the scroller has to
+    // continue from the corrected scroll with the same distance to go.
+    int corrected = scroll + 10 * CHILD_SIZE;
+    assertEquals(corrected, mScrollView.getScrollY());
+    assertFalse(scroller.isFinished());
+    assertEquals(corrected, scroller.getCurrY());
+    assertEquals(distance, scroller.getFinalY() - scroller.getCurrY());
+  }
+
+  @Test
+  public void testCorrectionMovesRunningSmoothScroll() {
+    OverScroller scroller = mScrollView.getScroller();
+    int scroll = mScrollView.getScrollY();
+    scroller.startScroll(0, scroll, 0, 800);
+
+    prependChildren(10);
+
+    int corrected = scroll + 10 * CHILD_SIZE;
+    assertEquals(corrected, mScrollView.getScrollY());
+    assertFalse(scroller.isFinished());
+    assertEquals(corrected, scroller.getCurrY());
+    assertEquals(corrected + 800, scroller.getFinalY());
+  }
+
+  @Test
+  public void testBatchSpanningFrameEndsOnNextFrame() {
+    mScrollView.engine.beginBatch();
+    insertChildren(0, 10);
+    mScrollView.drawFrame();
+    assertEquals(INITIAL_SCROLL, mScrollView.getScrollY());
+
+    mScrollView.engine.endBatch();
+    mScrollView.drawFrame();
+    assertEquals(INITIAL_SCROLL + 10 * CHILD_SIZE, mScrollView.getScrollY());
+  }
+
+  @Test
+  public void testScrollingDuringBatchMovesAnchor() {
+    mScrollView.engine.beginBatch();
+    insertChildren(0, 10);
+    mScrollView.drawFrame();
+    mScrollView.engine.onDragStart();
+    mScrollView.scrollTo(0, mScrollView.getScrollY() + 300);
+    mScrollView.engine.onDragEnd();
+    mScrollView.drawFrame();
+    mScrollView.engine.endBatch();
+    mScrollView.drawFrame();
+
+    // Corrected for the prepended children, without undoing the drag.
+    assertEquals(INITIAL_SCROLL + 300 + 10 * CHILD_SIZE, mScrollView.getScrollY());
+  }
+
+  @Test
+  public void testOnlyDragsSnapToChildren() {
+    mScrollView.engine.setSnapToChildren(true);
+    OverScroller scroller = mScrollView.getScroller();
+
+    // A tap ends a touch that never started a drag.
+    mScrollView.engine.onDragEnd();
+    assertTrue(scroller.isFinished());
+    assertEquals(INITIAL_SCROLL, mScrollView.getScrollY());
+
+    mScrollView.engine.onDragStart();
+    mScrollView.engine.onDragEnd();
+    int target = scroller.isFinished() ? mScrollView.getScrollY() : scroller.getFinalY();
+    assertEquals(INITIAL_SCROLL / CHILD_SIZE * CHILD_SIZE, target);
+  }
+
+  @Test
+  public void testInitialAnchorWaitsForItsChild() {
+    int index = CHILD_COUNT + 5;
+    mScrollView.engine.setInitialAnchor(index, 30);
+    mScrollView.preDraw();
+    assertEquals(INITIAL_SCROLL, mScrollView.getScrollY());
+
+    // Enough children after it that the scroll isn't clamped.
+    for (int i = 0; i < 20; i++) {
+      mContent.insert(mContent.size(), CHILD_SIZE);
+    }
+    mContent.layout();
+    mScrollView.preDraw();
+    assertEquals(index * CHILD_SIZE + 30, mScrollView.getScrollY());
+    assertEquals(index, mScrollView.engine.getAnchorIndex());
+    assertEquals(30, mScrollView.engine.getAnchorOffset());
+
+    // Applied only once.
+    mScrollView.scrollTo(0, INITIAL_SCROLL);
+    mContent.insert(mContent.size(), CHILD_SIZE);
+    mContent.layout();
+    mScrollView.preDraw();
+    assertEquals(INITIAL_SCROLL, mScrollView.getScrollY());
+  }
+
+  private void prependChildren(int count) {
+    insertChildren(0, count);
+    mScrollView.preDraw();
+  }
+
+  private void insertChildren(int position, int count) {
+    for (int i = 0; i < count; i++) {
+      mContent.insert(position, CHILD_SIZE);
+    }
+    mContent.layout();
+  }
+}
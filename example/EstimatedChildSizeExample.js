@@ -0,0 +1,99 @@
+/**
+ * Checks on a device that native child indices still match the JS children
+ * while estimated-size placeholders are rendered.
+ *
+ * Items are prepended above the viewport, where they start out as
+ * placeholders, and the view is then scrolled to the end. The last visible
+ * index reported natively must be the last JS child. If a placeholder were
+ * flattened away natively, it would be short by one for each placeholder.
+ *
+ * @flow
+ */
+'use strict';
+
+import React from 'react';
+import {StyleSheet, Text, View} from 'react-native';
+import VisibleScrollView from 'react-native-visible-scrollview';
+
+const INITIAL_COUNT = 50;
+const PREPENDED_COUNT = 50;
+const ITEM_HEIGHT = 60;
+
+function createItems(first: number, count: number): Array<{key: string, label: string}> {
+  const items = [];
+  for (let i = first; i < first + count; i++) {
+    items.push({key: 'item' + i, label: 'Item ' + i});
+  }
+  return items;
+}
+
+export default class EstimatedChildSizeExample extends React.Component {
+  state = {
+    items: createItems(0, INITIAL_COUNT),
+    status: 'waiting',
+  };
+
+  _scrollView: ?VisibleScrollView = null;
+  _visible: Set<number> = new Set();
+  _checking = false;
+
+  componentDidMount() {
+    requestAnimationFrame(() => {
+      this.setState(
+        ({items}) => ({items: createItems(-PREPENDED_COUNT, PREPENDED_COUNT).concat(items)}),
+        () => requestAnimationFrame(() => {
+          this._checking = true;
+          this._scrollView && this._scrollView.scrollToEnd({animated: false});
+        }),
+      );
+    });
+  }
+
+  _handleVisibleItemsChanged = (e: Object) => {
+    const {entered, exited} = e.nativeEvent;
+    exited.forEach((index) => this._visible.delete(index));
+    entered.forEach((index) => this._visible.add(index));
+    if (!this._checking) {
+      return;
+    }
+    const last = Math.max(...this._visible);
+    const expected = this.state.items.length - 1;
+    this.setState({
+      status: last === expected ?
+        'indices match' :
+        'last visible index ' + last + ', expected ' + expected,
+    });
+  };
+
+  render() {
+    return (
+      <View style={styles.container}>
+        <Text style={styles.status}>{this.state.status}</Text>
+        <VisibleScrollView
+          ref={(ref) => { this._scrollView = ref; }}
+          estimatedChildSize={ITEM_HEIGHT}
+          onVisibleItemsChanged={this._handleVisibleItemsChanged}>
+          {this.state.items.map((item) =>
+            <View key={item.key} style={styles.item} collapsable={false}>
+              <Text>{item.label}</Text>
+            </View>
+          )}
+        </VisibleScrollView>
+      </View>
+    );
+  }
+}
+
+const styles = StyleSheet.create({
+  container: {
+    flex: 1,
+  },
+  status: {
+    padding: 8,
+  },
+  item: {
+    height: ITEM_HEIGHT,
+    justifyContent: 'center',
+    paddingHorizontal: 16,
+  },
+});
@@ -23,6 +23,7 @@ const ScrollResponder = require('./VisibleScrollResponder');
 const ScrollViewStickyHeader = require('react-native/Libraries/Components/ScrollView/ScrollViewStickyHeader');
 const StyleSheet = require('react-native/Libraries/StyleSheet/StyleSheet');
 const StyleSheetPropType = require('react-native/Libraries/StyleSheet/StyleSheetPropType');
+const UIManager = require('react-native/Libraries/ReactNative/UIManager');
 const View = require('react-native/Libraries/Components/View/View');
 const ViewPropTypes = require('react-native/Libraries/Components/View/ViewPropTypes');
 const ViewStylePropTypes = require('react-native/Libraries/Components/View/ViewStylePropTypes');
@@ -34,9 +35,229 @@ const processDecelerationRate = require('react-native/Libraries/Components/Scrol
 const PropTypes = require('prop-types');
 const requireNativeComponent = require('react-native/Libraries/ReactNative/requireNativeComponent');
 
+/**
+ * The key a child was given, without the prefix React.Children.toArray adds.
+ */
+function getChildKey(child: any): ?string {
+  const key = child && child.key;
+  return typeof key === 'string' && key.startsWith('.$') ? key.substring(2) : key;
+}
+
 class VisibleScrollView extends ScrollView {
   constructor(props) {
     super(props);
+    // Keys of children that are rendered for real. Children inserted before
+    // _materializeAnchorKey start out as estimated-size placeholders. Only
+    // updated outside render, from new props and materialize range events.
+    this._materializedKeys = new Set();
+    this._materializeAnchorKey = null;
+    this._handleMaterializeRangeChanged = this._handleMaterializeRangeChanged.bind(this);
+    // Measured sizes of children released by recycle range events, by key.
+    // These render as placeholders of that size until they come back in range.
+    this._recycledSizes = new Map();
+    this._handleRecycleRangeChanged = this._handleRecycleRangeChanged.bind(this);
+    this._handleContentSizeChanged = this._handleContentSizeChanged.bind(this);
+    // initialAnchor resolved to a child index, sent natively and then left
+    // alone so later renders don't move the view again.
+    this._nativeInitialAnchor = null;
+    this._updateMaterializedKeys(props);
+    this._resolveInitialAnchor(props);
+  }
+
+  componentWillReceiveProps(nextProps: Object) {
+    super.componentWillReceiveProps && super.componentWillReceiveProps(nextProps);
+    this._updateMaterializedKeys(nextProps);
+    this._updateRecycledSizes(nextProps);
+    this._resolveInitialAnchor(nextProps);
+  }
+
+  /**
+   * Looks up the child with the initialAnchor key until it is first
+   * rendered. Its index is sent once; the native view applies it on the
+   * first layout where that child exists.
+   */
+  _resolveInitialAnchor(props: Object) {
+    if (this._nativeInitialAnchor !== null || !props.initialAnchor) {
+      return;
+    }
+    const {key, offset = 0} = props.initialAnchor;
+    const index = React.Children.toArray(props.children)
+      .findIndex((child) => getChildKey(child) === key);
+    if (index !== -1) {
+      this._nativeInitialAnchor = {index, offset};
+    }
+  }
+
+  /**
+   * Resolves with the key of the first visible child and how many points
+   * past its start the viewport starts, or null without children. Pass it
+   * back as `initialAnchor` to restore the position in a new view, for
+   * example after the activity is recreated.
+   * @platform android
+   */
+  getAnchor(): Promise<?{key: ?string, offset: number}> {
+    invariant(Platform.OS === 'android', 'getAnchor is only supported on Android');
+    return ReactNative.NativeModules.FPVisibleScrollAnchor.getAnchor(this.getScrollableNode())
+      .then((anchor) => {
+        const child = anchor && React.Children.toArray(this.props.children)[anchor.index];
+        return child ? {key: getChildKey(child), offset: anchor.offset} : null;
+      });
+  }
+
+  /**
+   * Keeps the keys of children at or after the materialize anchor and of
+   * children already materialized, and drops keys of removed children.
+   */
+  _updateMaterializedKeys(props: Object) {
+    if (props.estimatedChildSize == null) {
+      this._materializedKeys.clear();
+      return;
+    }
+    const childArray = React.Children.toArray(props.children);
+    const anchorKey = this._materializeAnchorKey;
+    const anchorIndex = anchorKey === null ?
+      -1 : childArray.findIndex((child) => child.key === anchorKey);
+    const materializedKeys = new Set();
+    childArray.forEach((child, index) => {
+      if (index >= anchorIndex || this._materializedKeys.has(child.key)) {
+        materializedKeys.add(child.key);
+      }
+    });
+    this._materializedKeys = materializedKeys;
+  }
+
+  /**
+   * Drops the sizes of removed children, or all of them once recycling is
+   * turned off.
+   */
+  _updateRecycledSizes(props: Object) {
+    if (!(props.recycleDistance > 0)) {
+      this._recycledSizes.clear();
+      return;
+    }
+    const keys = new Set(React.Children.toArray(props.children).map((child) => child.key));
+    this._recycledSizes.forEach((size, key) => {
+      if (!keys.has(key)) {
+        this._recycledSizes.delete(key);
+      }
+    });
+  }
+
+  _withPlaceholders(childArray: Array<any>) {
+    const {estimatedChildSize, horizontal} = this.props;
+    const estimatingChildren = estimatedChildSize != null;
+    return childArray.map((child, index) => {
+      let size = this._recycledSizes.get(child.key);
+      if (size === undefined) {
+        if (!estimatingChildren || this._materializedKeys.has(child.key)) {
+          return child;
+        }
+        size = typeof estimatedChildSize === 'function' ?
+          estimatedChildSize(index) : estimatedChildSize;
+      }
+      // Layout-only views are flattened away natively, which would shift the
+      // native index of every later child.
+      return (
+        <View
+          key={child.key}
+          style={horizontal ? {width: size} : {height: size}}
+          collapsable={false}
+        />
+      );
+    });
+  }
+
+  _handleMaterializeRangeChanged(e: Object) {
+    const {first, last} = e.nativeEvent;
+    if (first === -1) {
+      return;
+    }
+    const childArray = React.Children.toArray(this.props.children);
+    let changed = false;
+    for (let i = first; i <= last && i < childArray.length; i++) {
+      if (!this._materializedKeys.has(childArray[i].key)) {
+        this._materializedKeys.add(childArray[i].key);
+        changed = true;
+      }
+    }
+    this._materializeAnchorKey = childArray[first] ? childArray[first].key : null;
+    if (changed) {
+      this.forceUpdate();
+    }
+  }
+
+  _handleRecycleRangeChanged(e: Object) {
+    const {first, last, releasedIndices, releasedSizes} = e.nativeEvent;
+    const childArray = React.Children.toArray(this.props.children);
+    let changed = false;
+    releasedIndices.forEach((index, i) => {
+      const child = childArray[index];
+      if (child && this._recycledSizes.get(child.key) !== releasedSizes[i]) {
+        this._recycledSizes.set(child.key, releasedSizes[i]);
+        changed = true;
+      }
+    });
+    for (let i = Math.max(first, 0); i <= last && i < childArray.length; i++) {
+      if (this._recycledSizes.delete(childArray[i].key)) {
+        changed = true;
+      }
+    }
+    if (changed) {
+      this.forceUpdate();
+    }
+  }
+
+  _handleContentSizeChanged(e: Object) {
+    const {width, height} = e.nativeEvent;
+    this.props.onContentSizeChange && this.props.onContentSizeChange(width, height);
+  }
+
+  /**
+   * Scrolls to the child at `index` without measuring it from JS first; the
+   * native side resolves the child's current position. `viewOffset` keeps
+   * that many points between the start of the viewport and the child.
+   * @platform android
+   */
+  scrollToIndex(params: {index: number, viewOffset?: number, animated?: boolean}) {
+    invariant(Platform.OS === 'android', 'scrollToIndex is only supported on Android');
+    const {index, viewOffset = 0, animated = true} = params;
+    const viewName = this.props.horizontal ?
+      'FPAndroidHorizontalVisibleScrollView' : 'FPVisibleScrollView';
+    UIManager.dispatchViewManagerCommand(
+      this.getScrollableNode(),
+      UIManager[viewName].Commands.scrollToIndex,
+      [index, viewOffset, animated],
+    );
+  }
+
+  /**
+   * Until the matching `endBatch()`, content changes are not anchored,
+   * clipped or reported one by one. The visible content is kept in place,
+   * clipped and reported once for all of them, right before the next frame
+   * after `endBatch()`. Call both in the same tick as the updates, for
+   * example around a `setState` that replaces many children. Does nothing on
+   * iOS.
+   * @platform android
+   */
+  beginBatch() {
+    this._dispatchBatchCommand('beginBatch');
+  }
+
+  endBatch() {
+    this._dispatchBatchCommand('endBatch');
+  }
+
+  _dispatchBatchCommand(command: string) {
+    if (Platform.OS !== 'android') {
+      return;
+    }
+    const viewName = this.props.horizontal ?
+      'FPAndroidHorizontalVisibleScrollView' : 'FPVisibleScrollView';
+    UIManager.dispatchViewManagerCommand(
+      this.getScrollableNode(),
+      UIManager[viewName].Commands[command],
+      [],
+    );
   }
 
   render() {
@@ -81,7 +302,8 @@ class VisibleScrollView extends ScrollView {
     }
 
     let contentSizeChangeProps = {};
-    if (this.props.onContentSizeChange) {
+    // On Android the native view reports the content size once per frame.
+    if (this.props.onContentSizeChange && Platform.OS !== 'android') {
       contentSizeChangeProps = {
         onLayout: this._handleContentOnLayout,
       };
@@ -89,11 +311,25 @@ class VisibleScrollView extends ScrollView {
 
     const {stickyHeaderIndices} = this.props;
     const hasStickyHeaders = stickyHeaderIndices && stickyHeaderIndices.length > 0;
-    const childArray = hasStickyHeaders && React.Children.toArray(this.props.children);
+    const estimatingChildren = this.props.estimatedChildSize != null;
+    const recyclingChildren = this.props.recycleDistance > 0;
+    const placingChildren = estimatingChildren || recyclingChildren;
+    let childArray = (hasStickyHeaders || placingChildren) &&
+      React.Children.toArray(this.props.children);
+    if (placingChildren) {
+      childArray = this._withPlaceholders(childArray);
+    }
     const children = hasStickyHeaders ?
       childArray.map((child, index) => {
         const indexOfIndex = child ? stickyHeaderIndices.indexOf(index) : -1;
-        if (indexOfIndex > -1) {
+        if (indexOfIndex > -1 && Platform.OS === 'android') {
+          // Positioned natively; the wrapper only draws the header above later children.
+          return (
+            <View key={child.key} style={styles.stickyHeader} collapsable={false}>
+              {child}
+            </View>
+          );
+        } else if (indexOfIndex > -1) {
           const key = child.key;
           const nextIndex = stickyHeaderIndices[indexOfIndex + 1];
           return (
@@ -112,7 +348,7 @@ class VisibleScrollView extends ScrollView {
           return child;
         }
       }) :
-      this.props.children;
+      (placingChildren ? childArray : this.props.children);
     const contentContainer =
       <ScrollContentContainerViewClass
         {...contentSizeChangeProps}
@@ -160,9 +396,20 @@ class VisibleScrollView extends ScrollView {
       onTouchEnd: this.scrollResponderHandleTouchEnd,
       onTouchMove: this.scrollResponderHandleTouchMove,
       onTouchStart: this.scrollResponderHandleTouchStart,
-      scrollEventThrottle: hasStickyHeaders ? 1 : this.props.scrollEventThrottle,
+      scrollEventThrottle: hasStickyHeaders && Platform.OS === 'ios' ?
+        1 : this.props.scrollEventThrottle,
       sendMomentumEvents: (this.props.onMomentumScrollBegin || this.props.onMomentumScrollEnd) ?
         true : false,
+      sendVisibleItemsEvents: this.props.onVisibleItemsChanged ? true : false,
+      sendMaterializeRangeEvents: estimatingChildren,
+      onMaterializeRangeChanged: this._handleMaterializeRangeChanged,
+      onRecycleRangeChanged: this._handleRecycleRangeChanged,
+      sendContentSizeEvents: this.props.onContentSizeChange ? true : false,
+      initialAnchor: this._nativeInitialAnchor,
+      onContentSizeChanged: this._handleContentSizeChanged,
+      // Placeholders being replaced by real children must not move the content.
+      maintainVisibleContentPosition: this.props.maintainVisibleContentPosition ||
+        (estimatingChildren ? {minIndexForVisible: 0} : undefined),
     };
 
     const { decelerationRate } = this.props;
@@ -206,6 +453,114 @@ class VisibleScrollView extends ScrollView {
   }
 }
 
+VisibleScrollView.propTypes = {
+  ...ScrollView.propTypes,
+  /**
+   * The scroll view always keeps the first visible child at the same position
+   * when content is added, removed or resized above it. When set, only
+   * children at or after `minIndexForVisible` are kept in place. If
+   * `autoscrollToTopThreshold` is set and the view was within that distance of
+   * the start, it scrolls back to the start after adjusting.
+   * @platform android
+   */
+  maintainVisibleContentPosition: PropTypes.shape({
+    minIndexForVisible: PropTypes.number.isRequired,
+    autoscrollToTopThreshold: PropTypes.number,
+  }),
+  /**
+   * Called when children enter or leave the viewport, with an event whose
+   * `nativeEvent` is `{entered: Array<number>, exited: Array<number>}`, in
+   * child indices. Computed natively, so it only fires when the visible range
+   * changes.
+   * @platform android
+   */
+  onVisibleItemsChanged: PropTypes.func,
+  /**
+   * Minimum distance in points the view has to scroll between two `onScroll`
+   * events. Works together with `scrollEventThrottle`, which Android also
+   * enforces natively. The final offset is always sent once scrolling stops.
+   * @platform android
+   */
+  scrollEventThrottleDistance: PropTypes.number,
+  /**
+   * Called with an event whose `nativeEvent` is
+   * `{edge: 'start' | 'end', distanceFromEdge, contentSize}` when the
+   * viewport comes within `prefetchDistance` points, or
+   * `prefetchDistanceScreens` viewports, of either end of the content. Each
+   * edge fires at most once until the content size changes.
+   * @platform android
+   */
+  onPrefetch: PropTypes.func,
+  prefetchDistance: PropTypes.number,
+  prefetchDistanceScreens: PropTypes.number,
+  /**
+   * Called with an event whose `nativeEvent` is
+   * `{edge: 'start' | 'end', firstIndex, lastIndex, size}` when children at
+   * either end of the content lie entirely more than `trimDistance` points
+   * from the viewport, naming the range of children that can be unmounted.
+   * Each edge fires at most once until the content size changes. Removing the
+   * children before the viewport leaves the visible content in place.
+   * @platform android
+   */
+  onDropRequest: PropTypes.func,
+  trimDistance: PropTypes.number,
+  /**
+   * Children further than this many points from the viewport are rendered as
+   * empty views of their measured size, so their native views are released,
+   * and are rendered for real again once they come back within the distance.
+   * Sticky headers are kept. Native views are freed rather than pooled for
+   * reuse, and children that were never laid out within the distance are not
+   * released. 0 turns recycling off.
+   * @platform android
+   */
+  recycleDistance: PropTypes.number,
+  /**
+   * With `removeClippedSubviews`, children are attached this many
+   * milliseconds of travel before they scroll in during a fling, at the
+   * current fling velocity, up to `flingLookaheadMaxDistance` points. Uses
+   * more memory during flings in exchange for fewer blank frames.
+   * @platform android
+   */
+  flingLookaheadTime: PropTypes.number,
+  flingLookaheadMaxDistance: PropTypes.number,
+  /**
+   * Milliseconds of deferred native work, such as detaching children after
+   * a fling, allowed per idle slot of the UI thread. Deferred work only runs
+   * once scrolling has stopped.
+   * @platform android
+   */
+  idleWorkBudget: PropTypes.number,
+  /**
+   * When true, flings come to rest on the start edge of a child, chosen
+   * natively from the children's current layout, so children of any size
+   * can be used as pages. Takes precedence over `pagingEnabled`.
+   * @platform android
+   */
+  snapToChildren: PropTypes.bool,
+  /**
+   * When set, children inserted above the viewport are first rendered as
+   * placeholders of this size (or of `estimatedChildSize(index)`), and
+   * rendered for real once they come within `materializeDistance` points of
+   * the viewport, one viewport by default. The visible content stays in place
+   * when an estimate is replaced by the real size. Like every index-based API
+   * here, this needs each child to be exactly one native view: a child that
+   * only has layout props needs `collapsable={false}`.
+   * @platform android
+   */
+  estimatedChildSize: PropTypes.oneOfType([PropTypes.number, PropTypes.func]),
+  materializeDistance: PropTypes.number,
+  /**
+   * Where to start: `offset` points past the start of the child with `key`,
+   * as returned by `getAnchor()`. Applied natively on the first layout where
+   * that child exists, and only once. Later changes are ignored.
+   * @platform android
+   */
+  initialAnchor: PropTypes.shape({
+    key: PropTypes.string.isRequired,
+    offset: PropTypes.number,
+  }),
+};
+
 const styles = StyleSheet.create({
   baseVertical: {
     flexGrow: 1,
@@ -222,6 +577,9 @@ const styles = StyleSheet.create({
   contentContainerHorizontal: {
     flexDirection: 'row',
   },
+  stickyHeader: {
+    zIndex: 10,
+  },
 });
 
 let nativeOnlyProps,
@@ -233,6 +591,9 @@ if (Platform.OS === 'android') {
   nativeOnlyProps = {
     nativeOnly: {
       sendMomentumEvents: true,
+      sendVisibleItemsEvents: true,
+      sendMaterializeRangeEvents: true,
+      sendContentSizeEvents: true,
     }
   };
   AndroidScrollView = requireNativeComponent(
@@ -262,4 +623,14 @@ if (Platform.OS === 'android') {
   RCTScrollContentView = requireNativeComponent('RCTScrollContentView', View);
 }
 
+/**
+ * Metrics collected natively for views with a `scrollPerfTag`:
+ * `getMetrics(tag)`, `getAllMetrics()` and `resetMetrics(tag)`. They include
+ * the timing of frames drawn while the views were dragged or flinging:
+ * `frames`, `jankyFrames`, `droppedFrames`, `frameP50Ms`, `frameP95Ms`,
+ * `frameP99Ms` and `frameHistogram`, the frame count per millisecond.
+ * @platform android
+ */
+export const VisibleScrollMetrics = ReactNative.NativeModules.FPVisibleScrollMetrics;
+
 export default VisibleScrollView;